@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Runs the JMH suite with the parameters used for the committed baseline and writes one JSON file per run.
+#   benchmarks/run-baseline.sh                 # results in target/jmh, compare against benchmarks/baseline
+#   OUT=benchmarks/baseline benchmarks/run-baseline.sh   # refresh the baseline
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+OUT=${OUT:-target/jmh}
+COMMON=${COMMON:-"-wi 2 -i 3 -w 1 -r 1 -f 1 -prof gc"}
+mkdir -p "$OUT"
+
+mvn -B -q -Pjmh test-compile
+
+run() {
+    local name=$1
+    shift
+    echo ">> $name"
+    mvn -B -q -Pjmh exec:exec -Djmh.args="$* $COMMON -rf json -rff $OUT/$name.json"
+}
+
+run storage-memory       StorageBenchmark -p backend=memory -p storeSize=10000,1000000 -p pdfSize=65536
+run storage-memory-1mb   StorageBenchmark -p backend=memory -p storeSize=10000 -p pdfSize=1048576
+run storage-segment      StorageBenchmark -p backend=segment,cached -p storeSize=10000 -p pdfSize=65536
+run storage-list         StorageListBenchmark -p totalStatements=10000,1000000
+run tokens-t1            TokenStoreBenchmark -p liveTokens=10000,1000000 -t 1
+run tokens-t4            TokenStoreBenchmark -p liveTokens=10000,1000000 -t 4
+run token-purge          TokenPurgeBenchmark
+run filename-parsing     FilenameParsingBenchmark
+run bulk-ingestion       BulkIngestionBenchmark
+run streaming-upload     StreamingUploadBenchmark
+
+echo "Results in $OUT"
+if [ "$OUT" != "benchmarks/baseline" ]; then
+    mvn -B -q -Pjmh exec:exec -Djmh.main=za.co.statements.benchmark.BaselineComparison \
+        -Djmh.args="benchmarks/baseline $OUT"
+fi
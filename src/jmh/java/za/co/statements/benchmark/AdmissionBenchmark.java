@@ -0,0 +1,93 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import za.co.statements.admission.DownloadAdmission;
+import za.co.statements.exception.DownloadThrottledException;
+import za.co.statements.service.StatementService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public download admission. {@code admitted} is the overhead on a legitimate download, from one of
+ * {@value #CLIENTS} clients with its own token. {@code throttled} is a flood request from one client replaying one
+ * token once its buckets are empty, and {@code invalidToken} what the same request cost without admission
+ * control: a token validation and a rejected download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class AdmissionBenchmark {
+
+    private static final int CLIENTS = 64 * 1024;
+    private static final String FLOOD_CLIENT = "203.0.113.7";
+    private static final String FLOOD_TOKEN = "c2VjcmV0LXRva2VuLWd1ZXNzZWQtYnktYW4tYXR0YWNrZXI";
+
+    DownloadAdmission admission;
+    DownloadAdmission floodAdmission;
+    StatementService statementService;
+    String[] clients;
+    String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        statementService = new StatementService(new InMemoryStorageService(), new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 300L);
+
+        clients = new String[CLIENTS];
+        tokens = new String[CLIENTS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+            tokens[i] = Long.toString(random.nextLong(), 36) + Long.toString(random.nextLong(), 36);
+        }
+
+        // Rates high enough that the admitted path never runs dry; the flood limiter is drained by its first request
+        admission = new DownloadAdmission(1_000_000, 50, 1_000_000, 10, 16384, DataSize.ofMegabytes(256));
+        floodAdmission = new DownloadAdmission(1, 1, 1, 1, 16384, DataSize.ofMegabytes(256));
+        floodAdmission.admit(FLOOD_CLIENT, FLOOD_TOKEN);
+    }
+
+    @Benchmark
+    public long admitted() {
+        int client = ThreadLocalRandom.current().nextInt(CLIENTS);
+        admission.admit(clients[client], tokens[client]);
+        return client;
+    }
+
+    @Benchmark
+    public long throttled() {
+        try {
+            floodAdmission.admit(FLOOD_CLIENT, FLOOD_TOKEN);
+            return 0;
+        } catch (DownloadThrottledException e) {
+            return e.getRetryAfterSeconds();
+        }
+    }
+
+    @Benchmark
+    public Object invalidToken() {
+        try {
+            return statementService.downloadViaToken(FLOOD_TOKEN);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package za.co.statements.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares JMH JSON results ({@code -rf json}) against the committed baseline in {@code benchmarks/baseline}.
+ * Rows are matched on benchmark, mode, threads and params; scores are shown with their change, and the
+ * allocation per operation when the run used {@code -prof gc}.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=za.co.statements.benchmark.BaselineComparison \
+ *     -Djmh.args="benchmarks/baseline target/jmh"
+ * </pre>
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private record Result(double score, String unit, String mode, double allocatedBytes) {}
+
+    private BaselineComparison() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineComparison <baseline file or directory> <results file or directory>");
+            System.exit(2);
+        }
+
+        Map<String, Result> baseline = load(Path.of(args[0]));
+        Map<String, Result> current = load(Path.of(args[1]));
+
+        System.out.printf("%-90s %14s %14s %9s %12s %12s%n",
+                "Benchmark", "Baseline", "Current", "Change", "B/op base", "B/op now");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %12s %12s%n",
+                        entry.getKey(), "-", now.score(), "new", "-", bytes(now.allocatedBytes()));
+                continue;
+            }
+
+            double change = (now.score() - before.score()) / before.score() * 100;
+            // Throughput improves upwards, time per operation downwards
+            boolean better = now.mode().equals("thrpt") ? change > 0 : change < 0;
+            System.out.printf("%-90s %14.3f %14.3f %8.1f%% %12s %12s  %s %s%n",
+                    entry.getKey(), before.score(), now.score(), change,
+                    bytes(before.allocatedBytes()), bytes(now.allocatedBytes()),
+                    now.unit(), Math.abs(change) < 5 ? "" : better ? "better" : "WORSE");
+        }
+    }
+
+    private static Map<String, Result> load(final Path location) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> listing = Files.list(location)) {
+                listing.filter(file -> file.toString().endsWith(".json")).sorted().forEach(files::add);
+            }
+        } else {
+            files.add(location);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Path file : files) {
+            for (JsonNode run : mapper.readTree(file.toFile())) {
+                JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION);
+                results.put(key(run), new Result(
+                        run.path("primaryMetric").path("score").asDouble(),
+                        run.path("primaryMetric").path("scoreUnit").asText(),
+                        run.path("mode").asText(),
+                        allocation.isMissingNode() ? Double.NaN : allocation.path("score").asDouble()));
+            }
+        }
+        return results;
+    }
+
+    private static String key(final JsonNode run) {
+        String benchmark = run.path("benchmark").asText();
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.',
+                benchmark.lastIndexOf('.') - 1) + 1));
+        key.append(" [").append(run.path("mode").asText()).append(", t=").append(run.path("threads").asInt());
+        Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+        while (params.hasNext()) {
+            Map.Entry<String, JsonNode> param = params.next();
+            key.append(", ").append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return key.append(']').toString();
+    }
+
+    private static String bytes(final double allocated) {
+        return Double.isNaN(allocated) ? "-" : String.format("%.0f", allocated);
+    }
+}
@@ -0,0 +1,85 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import za.co.statements.dto.response.BulkUploadResponse;
+import za.co.statements.service.BulkIngestionService;
+import za.co.statements.service.StatementService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Month-end style bulk ingestion: one ZIP of {@value #ENTRIES} statements per invocation, reported
+ * as statements per second for a varying worker pool size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BulkIngestionBenchmark {
+
+    static final int ENTRIES = 1000;
+
+    @Param({"1", "4", "8"})
+    int workers;
+
+    @Param({"65536"})
+    int statementBytes;
+
+    byte[] archive;
+    BulkIngestionService bulkIngestionService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] pdf = new byte[statementBytes];
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.setLevel(0);
+            for (int i = 0; i < ENTRIES; i++) {
+                zip.putNextEntry(new ZipEntry("statement_" + (i / 12 + 1) + "_2024_" + (i % 12 + 1) + ".pdf"));
+                zip.write(pdf);
+                zip.closeEntry();
+            }
+        }
+        archive = bytes.toByteArray();
+
+        StatementService statementService = new StatementService(new InMemoryStorageService(), new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 300L);
+        bulkIngestionService = new BulkIngestionService(statementService, workers,
+                DataSize.ofMegabytes(64), DataSize.ofMegabytes(25), false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bulkIngestionService.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public BulkUploadResponse ingestZip() throws IOException {
+        return bulkIngestionService.ingestZip(new ByteArrayInputStream(archive));
+    }
+}
@@ -0,0 +1,202 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import za.co.statements.Application;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StatementService;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent downloads over HTTP against the running application, in platform and virtual thread mode.
+ * 400 client threads exceed Tomcat's 200 platform request threads; {@code storageLatencyMillis} adds a
+ * blocking delay to every storage read, standing in for a disk or remote backend. Throughput mode gives
+ * downloads per ms, sample mode the latency percentiles (p0.99).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DownloadLoadBenchmark {
+
+    private static final int STATEMENTS = 1_000;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param({"0", "500"})
+    int storageLatencyMillis;
+
+    @Param({"65536"})
+    int pdfSize;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    URI[] links;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Command line arguments, so they win over whichever application.yml is on the benchmark classpath
+        context = new SpringApplicationBuilder(Application.class, SlowStorage.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--benchmark.storage-latency-ms=" + storageLatencyMillis,
+                "--statement.token.ttl-seconds=3600",
+                "--logging.level.root=WARN");
+
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        StatementService statementService = context.getBean(StatementService.class);
+        byte[] pdf = new byte[pdfSize];
+
+        links = new URI[STATEMENTS];
+        for (int i = 0; i < STATEMENTS; i++) {
+            pdf[0] = (byte) i;
+            pdf[1] = (byte) (i >> 8);
+            YearMonth period = YearMonth.of(2024, 1);
+            statementService.saveStatement((long) i + 1, period, pdf.clone());
+            String url = statementService.createDownloadLink((long) i + 1, period).url();
+            links[i] = URI.create("http://localhost:" + port + url);
+        }
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public long download() throws IOException, InterruptedException {
+        URI link = links[ThreadLocalRandom.current().nextInt(STATEMENTS)];
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(link).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            long read = body.transferTo(OutputStream.nullOutputStream());
+            if (response.statusCode() != 200 || read != pdfSize) {
+                throw new IllegalStateException("Download failed with status " + response.statusCode());
+            }
+            return read;
+        }
+    }
+
+    /** Registered as an extra source rather than a scanned {@code @Configuration}, so only this benchmark uses it. */
+    static class SlowStorage {
+
+        @Bean
+        @Primary
+        StorageService slowStorageService(@Qualifier("inMemoryStorageService") final StorageService delegate,
+                                          @Value("${benchmark.storage-latency-ms}") final long latencyMillis) {
+            return new StorageService() {
+
+                @Override
+                public void upload(final StatementKey key, final InputStream content, final long size)
+                        throws IOException {
+                    delegate.upload(key, content, size);
+                }
+
+                @Override
+                public byte[] read(final StatementKey key) {
+                    pause();
+                    return delegate.read(key);
+                }
+
+                @Override
+                public StoredObject open(final StatementKey key) {
+                    pause();
+                    return delegate.open(key);
+                }
+
+                @Override
+                public StoredMetadata metadata(final StatementKey key) {
+                    return delegate.metadata(key);
+                }
+
+                @Override
+                public boolean exists(final StatementKey key) {
+                    return delegate.exists(key);
+                }
+
+                @Override
+                public List<StatementKey> list(final long customerId) {
+                    return delegate.list(customerId);
+                }
+
+                @Override
+                public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+                    return delegate.listDescending(customerId, offset, limit);
+                }
+
+                @Override
+                public List<StatementKey> listBefore(final long customerId, final int beforePeriod,
+                                                     final int limit) {
+                    return delegate.listBefore(customerId, beforePeriod, limit);
+                }
+
+                @Override
+                public List<StatementKey> listBetween(final long customerId, final int fromPeriod,
+                                                      final int toPeriod) {
+                    return delegate.listBetween(customerId, fromPeriod, toPeriod);
+                }
+
+                @Override
+                public int count(final long customerId) {
+                    return delegate.count(customerId);
+                }
+
+                @Override
+                public StorageStats stats() {
+                    return delegate.stats();
+                }
+
+                private void pause() {
+                    if (latencyMillis > 0) {
+                        try {
+                            Thread.sleep(latencyMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StatementExport;
+import za.co.statements.service.StatementExportService;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.storage.SegmentStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP export of one customer's history. {@code streamed} is {@link StatementExportService#writeZip}, STORED
+ * entries copied from storage through a fixed buffer; {@code buffered} is the straightforward alternative of
+ * reading each statement whole and deflating the archive into memory before sending it. Run with
+ * {@code -prof gc}: the streamed allocation per export stays flat as {@code months} grows, the buffered one
+ * grows with the archive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExportBenchmark {
+
+    private static final long CUSTOMER = 1;
+    private static final YearMonth FIRST_PERIOD = YearMonth.of(2015, 1);
+
+    @Param({"memory", "segment"})
+    String backend;
+
+    @Param({"12", "120"})
+    int months;
+
+    @Param({"262144"})
+    int pdfSize;
+
+    StorageService storage;
+    StatementExportService exportService;
+    StatementExport export;
+    Path basePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (backend.equals("segment")) {
+            basePath = Files.createTempDirectory("export-bench");
+            storage = new SegmentStorageService(basePath, 1L << 30);
+        } else {
+            storage = new InMemoryStorageService();
+        }
+
+        for (int month = 0; month < months; month++) {
+            byte[] pdf = new byte[pdfSize];
+            ThreadLocalRandom.current().nextBytes(pdf);
+            storage.upload(StatementKey.of(CUSTOMER, FIRST_PERIOD.plusMonths(month)), pdf);
+        }
+
+        InMemoryDownloadTokenStore tokens = new InMemoryDownloadTokenStore();
+        exportService = new StatementExportService(storage, tokens);
+        ReflectionTestUtils.setField(exportService, "tokenTtlSeconds", 3600L);
+
+        String url = exportService.createExportLink(CUSTOMER, FIRST_PERIOD.toString(),
+                FIRST_PERIOD.plusMonths(months - 1).toString()).url();
+        export = exportService.openExport(url.substring(url.lastIndexOf('/') + 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (storage instanceof Closeable closeable) {
+            closeable.close();
+            FileSystemUtils.deleteRecursively(basePath);
+        }
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        exportService.writeZip(export, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] buffered() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (StoredMetadata statement : export.statements()) {
+                zip.putNextEntry(new ZipEntry(statement.key().filename()));
+                zip.write(storage.read(statement.key()));
+                zip.closeEntry();
+            }
+        }
+        return archive.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import za.co.statements.exception.InvalidStatementKeyException;
+import za.co.statements.key.StatementKeyParser;
+
+import java.time.YearMonth;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statement key parsing. For upload filenames: the regex the single upload used (recompiled per call,
+ * matched twice), the precompiled bulk pattern and {@link StatementKeyParser}. One in eight names is invalid.
+ * For storage paths, decoded for every listed statement: the former split-and-parse and the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilenameParsingBenchmark {
+
+    private static final int NAMES = 1024;
+    private static final Pattern BULK_FILENAME = Pattern.compile("statement_(\\d+)_(\\d{4})_(\\d{1,2})\\.pdf");
+
+    String[] filenames;
+    String[] paths;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filenames = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            filenames[i] = i % 8 == 0
+                    ? "scan_" + random.nextInt(1_000_000) + ".pdf"
+                    : "statement_" + random.nextLong(1, 100_000_000) + "_" + random.nextInt(2000, 2030)
+                            + "_" + random.nextInt(1, 13) + ".pdf";
+        }
+
+        paths = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            paths[i] = String.format("statements/%d/%s.pdf", random.nextLong(1, 100_000_000),
+                    YearMonth.of(random.nextInt(2000, 2030), random.nextInt(1, 13)));
+        }
+    }
+
+    @Benchmark
+    public YearMonth controllerUpload() {
+        String filename = filenames[ThreadLocalRandom.current().nextInt(NAMES)];
+        if (!filename.matches("statement_\\d+_\\d{4}_\\d{1,2}.*")) {
+            return null;
+        }
+        Matcher matcher = Pattern.compile("statement_(\\d+)_(\\d{4})_(\\d{1,2})").matcher(filename);
+        if (!matcher.find()) {
+            return null;
+        }
+        Long.parseLong(matcher.group(1));
+        return YearMonth.of(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+    }
+
+    @Benchmark
+    public YearMonth bulkPrecompiled() {
+        Matcher matcher = BULK_FILENAME.matcher(filenames[ThreadLocalRandom.current().nextInt(NAMES)]);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Long.parseLong(matcher.group(1));
+        return YearMonth.of(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+    }
+
+    @Benchmark
+    public YearMonth keyParser() {
+        try {
+            return StatementKeyParser.parseFilename(filenames[ThreadLocalRandom.current().nextInt(NAMES)]).yearMonth();
+        } catch (InvalidStatementKeyException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public YearMonth pathSplit() {
+        String[] parts = paths[ThreadLocalRandom.current().nextInt(NAMES)].split("/");
+        Long.valueOf(parts[1]);
+        return YearMonth.parse(parts[2].replace(".pdf", ""));
+    }
+
+    @Benchmark
+    public YearMonth pathParser() {
+        return StatementKeyParser.parsePath(paths[ThreadLocalRandom.current().nextInt(NAMES)]).yearMonth();
+    }
+}
@@ -0,0 +1,47 @@
+package za.co.statements.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original map-of-objects token store (UUID string key, {@code TokenData} with an {@link Instant}),
+ * kept as a baseline for {@link TokenStoreBenchmark}. Logging is left out on both sides.
+ */
+class LegacyDownloadTokenStore {
+
+    private final Map<String, TokenData> tokens = new ConcurrentHashMap<>();
+
+    private static class TokenData {
+        String path;
+        Instant expiresAt;
+    }
+
+    String generateToken(final String path, final Duration ttl) {
+        String token = UUID.randomUUID().toString();
+
+        TokenData data = new TokenData();
+        data.path = path;
+        data.expiresAt = Instant.now().plus(ttl);
+        tokens.put(token, data);
+        return token;
+    }
+
+    String validateToken(final String token) {
+        TokenData data = tokens.get(token);
+        if (data == null) {
+            return null;
+        }
+        if (Instant.now().isAfter(data.expiresAt)) {
+            tokens.remove(token);
+            return null;
+        }
+        return data.path;
+    }
+
+    void purgeExpired() {
+        tokens.entrySet().removeIf(entry -> entry.getValue().expiresAt.isBefore(Instant.now()));
+    }
+}
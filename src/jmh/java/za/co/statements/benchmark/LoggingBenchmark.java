@@ -0,0 +1,140 @@
+package za.co.statements.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.co.statements.service.StatementService;
+import za.co.statements.service.StoredObject;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Link creation and download through {@link StatementService} with the application's logging in the request path.
+ * {@code appender=sync} writes each event on the calling thread, as the plain {@code CONSOLE} appender did;
+ * {@code async} hands it to the bounded {@code AsyncAppender} of {@code logback-spring.xml}. {@code level} is the
+ * level of {@code za.co.statements}. Events go to a file in a temp directory in place of the console, with the
+ * Spring Boot console pattern. The benchmark only uses API that predates the logging changes, so running it on
+ * the earlier tree with {@code appender=sync} gives the before figure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LoggingBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int TOKENS = 64 * 1024;
+    private static final YearMonth PERIOD = YearMonth.of(2024, 1);
+    private static final String PATTERN =
+            "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+
+    @Param({"sync", "async"})
+    String appender;
+
+    @Param({"INFO", "DEBUG"})
+    String level;
+
+    StatementService statementService;
+    String[] tokens;
+    Path logDirectory;
+    LoggerContext context;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws IOException {
+        logDirectory = Files.createTempDirectory("logging-bench");
+        configureLogging();
+
+        statementService = new StatementService(new InMemoryStorageService(), new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 3600L);
+        for (long customer = 1; customer <= CUSTOMERS; customer++) {
+            statementService.saveStatement(customer, PERIOD, new byte[16]);
+        }
+
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            String url = createDownloadLink();
+            tokens[i] = url.substring(url.lastIndexOf('/') + 1);
+        }
+    }
+
+    private void configureLogging() {
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logDirectory.resolve("benchmark.log").toString());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> target = file;
+        if (appender.equals("async")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            target = async;
+        }
+
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(ch.qos.logback.classic.Level.WARN);
+        root.addAppender(target);
+        context.getLogger("za.co.statements").setLevel(ch.qos.logback.classic.Level.toLevel(level));
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        try (var files = Files.list(logDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(logDirectory);
+    }
+
+    @Benchmark
+    public String createDownloadLink() {
+        return statementService.createDownloadLink(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1), PERIOD)
+                .url();
+    }
+
+    @Benchmark
+    public StoredObject download() {
+        return statementService.downloadViaToken(tokens[ThreadLocalRandom.current().nextInt(TOKENS)]);
+    }
+}
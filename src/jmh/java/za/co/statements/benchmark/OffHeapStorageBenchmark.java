@@ -0,0 +1,113 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StoredObject;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.storage.OffHeapStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.YearMonth;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap footprint and GC cost of holding {@code dataSetMb} of distinct 64 KB statements on heap ({@code memory})
+ * or in direct-memory slabs ({@code offheap}). {@code stream} is the download path; {@code upload} overwrites
+ * statements with new content, leaving dead slab space that is compacted between iterations. Run with
+ * {@code -prof gc} for GC time per iteration; the heap still in use after a full GC is printed at the end of
+ * each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=3g"})
+public class OffHeapStorageBenchmark {
+
+    private static final int PDF_SIZE = 64 * 1024;
+    private static final int STATEMENTS_PER_CUSTOMER = 24;
+    private static final YearMonth FIRST_PERIOD = YearMonth.of(2023, 1);
+
+    @Param({"memory", "offheap"})
+    String backend;
+
+    @Param({"256", "1024"})
+    int dataSetMb;
+
+    StorageService storage;
+    StatementKey[] keys;
+    byte[] template;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = backend.equals("offheap")
+                ? new OffHeapStorageService(64 << 20, Long.MAX_VALUE, 0.5)
+                : new InMemoryStorageService(false, 16, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        template = new byte[PDF_SIZE];
+        ThreadLocalRandom.current().nextBytes(template);
+
+        int statements = (int) ((long) dataSetMb * (1 << 20) / PDF_SIZE);
+        keys = new StatementKey[statements];
+        for (int i = 0; i < statements; i++) {
+            keys[i] = StatementKey.of(i / STATEMENTS_PER_CUSTOMER + 1,
+                    FIRST_PERIOD.plusMonths(i % STATEMENTS_PER_CUSTOMER));
+            storage.upload(keys[i], distinct(i));
+        }
+    }
+
+    /** A fresh copy of the template stamped with {@code seed}, so the memory backend cannot deduplicate it. */
+    private byte[] distinct(final long seed) {
+        byte[] pdf = template.clone();
+        ByteBuffer.wrap(pdf).putLong(seed).putLong(System.nanoTime());
+        return pdf;
+    }
+
+    @TearDown(Level.Iteration)
+    public void compact() {
+        if (storage instanceof OffHeapStorageService offHeap) {
+            offHeap.compact();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reportHeap() {
+        System.gc();
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%n%s, %d MB of statements: %d MB of heap in use after GC%n",
+                backend, dataSetMb, used >> 20);
+    }
+
+    @Benchmark
+    public void upload() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        storage.upload(keys[random.nextInt(keys.length)], distinct(random.nextLong()));
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        StoredObject pdf = storage.open(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+        try (InputStream content = pdf.content().getInputStream()) {
+            return content.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package za.co.statements.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.co.statements.dto.response.RenderBatchResponse;
+import za.co.statements.render.StatementData;
+import za.co.statements.render.StatementLine;
+import za.co.statements.render.StatementRenderer;
+import za.co.statements.service.StatementRenderingService;
+import za.co.statements.service.StatementService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side rendering: {@code renderOne} is the cost of one PDF, {@code renderBatch} a month-end batch of
+ * {@code statements} rendered and stored on the memory backend through {@link StatementRenderingService} with
+ * {@code parallelism} workers. Statements have {@value #LINES} transactions, about one page each. The batch is
+ * timed end to end; documents per second is {@code statements} divided by the score.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RenderBenchmark {
+
+    static final int LINES = 20;
+    static final YearMonth PERIOD = YearMonth.of(2024, 1);
+    static final String[] DESCRIPTIONS = {"Salary", "Groceries", "Fuel", "Card purchase", "Debit order: insurance",
+            "Transfer to savings", "Cash withdrawal", "Monthly account fee"};
+
+    @Param({"10000", "100000"})
+    int statements;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    List<StatementData> batch;
+    StatementRenderer renderer;
+    StatementRenderingService renderingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        batch = new ArrayList<>(statements);
+        for (int customer = 1; customer <= statements; customer++) {
+            batch.add(statement(customer, random));
+        }
+
+        renderer = new StatementRenderer();
+        StatementService statementService =
+                new StatementService(new InMemoryStorageService(), new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 300L);
+        renderingService = new StatementRenderingService(statementService, new ObjectMapper(), parallelism, 1024);
+    }
+
+    static StatementData statement(final long customer, final SplittableRandom random) {
+        List<StatementLine> lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            lines.add(new StatementLine(PERIOD.atDay(1 + i), DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                    BigDecimal.valueOf(random.nextLong(-500_000, 500_000), 2)));
+        }
+        return new StatementData(customer, PERIOD, "Customer " + customer, lines);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        renderingService.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public byte[] renderOne() {
+        return renderer.render(batch.get(ThreadLocalRandom.current().nextInt(batch.size())));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public RenderBatchResponse renderBatch() {
+        return renderingService.render(batch.iterator());
+    }
+}
@@ -0,0 +1,134 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.co.statements.dto.StatementMetadataDto;
+import za.co.statements.dto.response.DownloadLinkResponse;
+import za.co.statements.dto.response.DownloadLinksResponse;
+import za.co.statements.exception.StatementNotFoundException;
+import za.co.statements.service.StatementService;
+import za.co.statements.service.StoredObject;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link StatementService} operations behind the API on the memory backend: save, download-link creation
+ * (single and a 24-month page, per period and batched), download via token and listing a customer's first page.
+ * The {@code Missing} variants ask for a month without a statement: as the empty result the controller turns
+ * into a 404, and as the {@link StatementNotFoundException} the other callers get.
+ * Run with {@code -prof gc} for bytes per operation; storage and tokens are the in-process implementations,
+ * so key handling is a visible share of the cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StatementServiceBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int STATEMENTS_PER_CUSTOMER = 24;
+    private static final int TOKENS = 64 * 1024;
+    private static final YearMonth FIRST_PERIOD = YearMonth.of(2023, 1);
+    private static final String FIRST_PERIOD_TEXT = FIRST_PERIOD.toString();
+    private static final String LAST_PERIOD_TEXT = FIRST_PERIOD.plusMonths(STATEMENTS_PER_CUSTOMER - 1).toString();
+    private static final YearMonth MISSING_PERIOD = FIRST_PERIOD.minusMonths(1);
+    private static final byte[] PDF = new byte[16];
+
+    StatementService statementService;
+    String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        statementService = new StatementService(new InMemoryStorageService(), new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 3600L);
+
+        for (long customer = 1; customer <= CUSTOMERS; customer++) {
+            for (int month = 0; month < STATEMENTS_PER_CUSTOMER; month++) {
+                statementService.saveStatement(customer, FIRST_PERIOD.plusMonths(month), PDF);
+            }
+        }
+
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            String url = createDownloadLink().url();
+            tokens[i] = url.substring(url.lastIndexOf('/') + 1);
+        }
+    }
+
+    @Benchmark
+    public void save() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        statementService.saveStatement(random.nextLong(1, CUSTOMERS + 1),
+                FIRST_PERIOD.plusMonths(random.nextInt(STATEMENTS_PER_CUSTOMER)), PDF);
+    }
+
+    @Benchmark
+    public DownloadLinkResponse createDownloadLink() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return statementService.createDownloadLink(random.nextLong(1, CUSTOMERS + 1),
+                FIRST_PERIOD.plusMonths(random.nextInt(STATEMENTS_PER_CUSTOMER)));
+    }
+
+    /** The links for a 24-month statements page, one call per period as the portal used to do. */
+    @Benchmark
+    public Optional<DownloadLinkResponse> findDownloadLinkMissing() {
+        return statementService.findDownloadLink(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1),
+                MISSING_PERIOD);
+    }
+
+    @Benchmark
+    public String createDownloadLinkMissing() {
+        try {
+            return statementService.createDownloadLink(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1),
+                    MISSING_PERIOD).url();
+        } catch (StatementNotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public void createDownloadLinkPerPeriod(final Blackhole blackhole) {
+        long customerId = ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1);
+        for (int month = 0; month < STATEMENTS_PER_CUSTOMER; month++) {
+            blackhole.consume(statementService.createDownloadLink(customerId, FIRST_PERIOD.plusMonths(month)));
+        }
+    }
+
+    /** The same 24 links from one batch call. */
+    @Benchmark
+    public DownloadLinksResponse createDownloadLinks() {
+        return statementService.createDownloadLinks(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1), null,
+                FIRST_PERIOD_TEXT, LAST_PERIOD_TEXT);
+    }
+
+    @Benchmark
+    public StoredObject download() {
+        return statementService.downloadViaToken(tokens[ThreadLocalRandom.current().nextInt(TOKENS)]);
+    }
+
+    @Benchmark
+    public Page<StatementMetadataDto> listFirstPage() {
+        return statementService.listStatements(ThreadLocalRandom.current().nextLong(1, CUSTOMERS + 1),
+                PageRequest.of(0, 10));
+    }
+}
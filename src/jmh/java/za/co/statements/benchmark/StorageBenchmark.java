@@ -0,0 +1,139 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StoredObject;
+import za.co.statements.storage.CachingStorageService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.storage.SegmentStorageService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload, read and streamed download against a pre-filled store, by backend, store size and PDF size.
+ * {@code cached} is the segment backend behind a 256 MB read cache; {@code readHot} reads a hot tenth of
+ * the store, as downloads of the current month do after a run.
+ * Thread count is set with {@code -t}. The store is filled from a small pool of distinct PDFs, so large
+ * stores fit in memory; the segment backend still writes every statement, so only small
+ * {@code storeSize x pdfSize} combinations are allowed for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+
+    private static final int STATEMENTS_PER_CUSTOMER = 24;
+    private static final int DISTINCT_PDFS = 64;
+    private static final long MAX_SEGMENT_PREFILL_BYTES = 4L << 30;
+    private static final YearMonth FIRST_PERIOD = YearMonth.of(2023, 1);
+    private static final long CACHE_BYTES = 256L << 20;
+
+    @Param({"memory", "segment", "cached"})
+    String backend;
+
+    @Param({"10000", "1000000", "10000000"})
+    int storeSize;
+
+    @Param({"65536", "1048576"})
+    int pdfSize;
+
+    /** Shards of the memory backend; compare 1 against many with {@code -t} above 1 for contention. */
+    @Param({"16"})
+    int shards;
+
+    StorageService storage;
+    Path basePath;
+    StatementKey[] keys;
+    byte[][] pdfs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (!backend.equals("memory")) {
+            if ((long) storeSize * pdfSize > MAX_SEGMENT_PREFILL_BYTES) {
+                throw new IllegalStateException("Segment prefill of " + storeSize + " x " + pdfSize
+                        + " bytes is too large, use a smaller storeSize");
+            }
+            basePath = Files.createTempDirectory("storage-bench");
+            SegmentStorageService segments = new SegmentStorageService(basePath, 1L << 30);
+            storage = backend.equals("cached")
+                    ? new CachingStorageService(segments, CACHE_BYTES, false,
+                            Executors.newVirtualThreadPerTaskExecutor())
+                    : segments;
+        } else {
+            storage = new InMemoryStorageService(false, shards, Long.MAX_VALUE, Long.MAX_VALUE);
+        }
+
+        pdfs = new byte[DISTINCT_PDFS][];
+        for (int i = 0; i < DISTINCT_PDFS; i++) {
+            pdfs[i] = new byte[pdfSize];
+            ThreadLocalRandom.current().nextBytes(pdfs[i]);
+        }
+
+        keys = new StatementKey[storeSize];
+        for (int i = 0; i < storeSize; i++) {
+            long customer = i / STATEMENTS_PER_CUSTOMER + 1;
+            keys[i] = StatementKey.of(customer, FIRST_PERIOD.plusMonths(i % STATEMENTS_PER_CUSTOMER));
+            storage.upload(keys[i], pdfs[i % DISTINCT_PDFS]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (storage instanceof Closeable closeable) {
+            closeable.close();
+            FileSystemUtils.deleteRecursively(basePath);
+        }
+    }
+
+    /** Re-upload over an existing statement, as a re-run of a month-end batch does. */
+    @Benchmark
+    public void upload() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        storage.upload(keys[random.nextInt(storeSize)], pdfs[random.nextInt(DISTINCT_PDFS)]);
+    }
+
+    @Benchmark
+    public byte[] read() {
+        return storage.read(keys[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    @Benchmark
+    public byte[] readHot() {
+        return storage.read(keys[ThreadLocalRandom.current().nextInt(Math.max(storeSize / 10, 1))]);
+    }
+
+    /** The download path: open the statement and stream it out. */
+    @Benchmark
+    public long stream() throws IOException {
+        StoredObject pdf = storage.open(keys[ThreadLocalRandom.current().nextInt(storeSize)]);
+        try (InputStream content = pdf.content().getInputStream()) {
+            return content.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.co.statements.dto.StatementMetadataDto;
+import za.co.statements.dto.response.StatementCursorResponse;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StatementService;
+import za.co.statements.service.StorageService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists one customer's history while the total store size grows. With the per-customer index the
+ * score should stay flat across {@code totalStatements}. The last page is the oldest ten statements,
+ * fetched by offset through the {@code Page} API and by cursor through the keyset API; both should
+ * stay flat as {@code historyMonths} grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageListBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final byte[] PDF = new byte[16];
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int totalStatements;
+
+    @Param({"24", "1200"})
+    int historyMonths;
+
+    StatementService statementService;
+    long customerId;
+    String lastPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StorageService storageService = new InMemoryStorageService();
+        statementService = new StatementService(storageService, new InMemoryDownloadTokenStore());
+        ReflectionTestUtils.setField(statementService, "tokenTtlSeconds", 300L);
+
+        int customers = totalStatements / historyMonths;
+        YearMonth first = YearMonth.of(1925, 1);
+        for (long customer = 1; customer <= customers; customer++) {
+            for (int month = 0; month < historyMonths; month++) {
+                storageService.upload(StatementKey.of(customer, first.plusMonths(month)), PDF);
+            }
+        }
+        customerId = customers / 2;
+        lastPageCursor = first.plusMonths(PAGE_SIZE).toString();
+    }
+
+    @Benchmark
+    public Page<StatementMetadataDto> listFirstPage() {
+        return statementService.listStatements(customerId, PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<StatementMetadataDto> listLastPage() {
+        return statementService.listStatements(customerId, PageRequest.of(historyMonths / PAGE_SIZE - 1, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public StatementCursorResponse listCursorFirstPage() {
+        return statementService.listStatements(customerId, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public StatementCursorResponse listCursorLastPage() {
+        return statementService.listStatements(customerId, lastPageCursor, PAGE_SIZE);
+    }
+}
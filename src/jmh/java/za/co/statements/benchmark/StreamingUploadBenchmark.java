@@ -0,0 +1,94 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import za.co.statements.key.StatementKey;
+import za.co.statements.storage.SegmentStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for the streaming upload path: 50 threads each pushing 20 MB statements into the segment
+ * store. Run with {@code -prof gc}; {@code gc.alloc.rate.norm} should stay around one 64 KB chunk per
+ * upload rather than the statement size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(50)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class StreamingUploadBenchmark {
+
+    @Param({"20971520"})
+    int statementBytes;
+
+    Path basePath;
+    SegmentStorageService store;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        basePath = Files.createTempDirectory("upload-bench");
+        store = new SegmentStorageService(basePath, 1L << 30);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        FileSystemUtils.deleteRecursively(basePath);
+    }
+
+    @Benchmark
+    public void upload() throws IOException {
+        long id = sequence.incrementAndGet();
+        store.upload(StatementKey.of(id, 2024, 10), new SyntheticPdfStream(statementBytes), statementBytes);
+    }
+
+    /** Produces {@code size} bytes without ever holding them, standing in for a spooled multipart part. */
+    static final class SyntheticPdfStream extends InputStream {
+
+        private long remaining;
+
+        SyntheticPdfStream(final long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            return remaining-- > 0 ? 0x25 : -1;
+        }
+
+        @Override
+        public int read(final byte[] target, final int offset, final int length) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, remaining);
+            for (int i = offset; i < offset + count; i++) {
+                target[i] = (byte) i;
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+}
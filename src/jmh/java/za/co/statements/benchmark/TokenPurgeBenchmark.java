@@ -0,0 +1,84 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import za.co.statements.key.StatementKey;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one scheduled purge with millions of live tokens, of which only a small batch has expired.
+ * The bucketed store only visits the expired batch; the original store sweeps every live entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TokenPurgeBenchmark {
+
+    private static final Duration LIVE_TTL = Duration.ofHours(1);
+    private static final Duration EXPIRED_TTL = Duration.ofSeconds(-5);
+    private static final StatementKey KEY = StatementKey.of(123, 2024, 10);
+    private static final String PATH = KEY.path();
+
+    @Param({"5000000"})
+    int liveTokens;
+
+    @Param({"10000"})
+    int expiredPerPurge;
+
+    @Param({"bucketed", "legacy"})
+    String store;
+
+    InMemoryDownloadTokenStore bucketed;
+    LegacyDownloadTokenStore legacy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (store.equals("bucketed")) {
+            bucketed = new InMemoryDownloadTokenStore();
+            for (int i = 0; i < liveTokens; i++) {
+                bucketed.generateToken(KEY, LIVE_TTL);
+            }
+        } else {
+            legacy = new LegacyDownloadTokenStore();
+            for (int i = 0; i < liveTokens; i++) {
+                legacy.generateToken(PATH, LIVE_TTL);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void expireBatch() {
+        for (int i = 0; i < expiredPerPurge; i++) {
+            if (bucketed != null) {
+                bucketed.generateToken(KEY, EXPIRED_TTL);
+            } else {
+                legacy.generateToken(PATH, EXPIRED_TTL);
+            }
+        }
+    }
+
+    @Benchmark
+    public void purge() {
+        if (bucketed != null) {
+            bucketed.purgeExpired();
+        } else {
+            legacy.purgeExpired();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import za.co.statements.key.StatementKey;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the primitive {@link InMemoryDownloadTokenStore} with the original map-of-objects store.
+ * Run with {@code -prof gc} to see bytes allocated per generate / validate, and {@code -t} to vary threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TokenStoreBenchmark {
+
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final StatementKey KEY = StatementKey.of(123, 2024, 10);
+    private static final String PATH = KEY.path();
+
+    @Param({"10000", "1000000", "10000000"})
+    int liveTokens;
+
+    InMemoryDownloadTokenStore store;
+    LegacyDownloadTokenStore legacy;
+    String[] storeTokens;
+    String[] legacyTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new InMemoryDownloadTokenStore();
+        legacy = new LegacyDownloadTokenStore();
+        storeTokens = new String[liveTokens];
+        legacyTokens = new String[liveTokens];
+        for (int i = 0; i < liveTokens; i++) {
+            storeTokens[i] = store.generateToken(KEY, TTL);
+            legacyTokens[i] = legacy.generateToken(PATH, TTL);
+        }
+    }
+
+    @Benchmark
+    public StatementKey validate() {
+        return store.validateToken(storeTokens[ThreadLocalRandom.current().nextInt(liveTokens)]);
+    }
+
+    @Benchmark
+    public String validateLegacy() {
+        return legacy.validateToken(legacyTokens[ThreadLocalRandom.current().nextInt(liveTokens)]);
+    }
+
+    @Benchmark
+    public String generate() {
+        return store.generateToken(KEY, TTL);
+    }
+
+    @Benchmark
+    public String generateLegacy() {
+        return legacy.generateToken(PATH, TTL);
+    }
+}
@@ -0,0 +1,81 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import za.co.statements.key.StatementKey;
+import za.co.statements.storage.DurableStorageService;
+import za.co.statements.storage.InMemoryStorageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upload throughput of the memory backend with its write-ahead log. With {@code fsync} every upload waits
+ * for its record to be forced; group commit lets concurrent uploads share a force, so sixteen uploaders
+ * should get well past the single uploader's one-force-per-statement rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class WalAppendBenchmark {
+
+    @Param({"true", "false"})
+    boolean fsync;
+
+    @Param({"102400"})
+    int pdfSize;
+
+    Path directory;
+    DurableStorageService store;
+    byte[] pdf;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-append-bench");
+        store = new DurableStorageService(new InMemoryStorageService(), directory, fsync, 1);
+        pdf = new byte[pdfSize];
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void uploadOneThread() {
+        upload();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void uploadSixteenThreads() {
+        upload();
+    }
+
+    private void upload() {
+        long id = sequence.incrementAndGet();
+        store.upload(StatementKey.of(id, 2024, 10), pdf);
+    }
+}
@@ -0,0 +1,86 @@
+package za.co.statements.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageStats;
+import za.co.statements.storage.DurableStorageService;
+import za.co.statements.storage.InMemoryStorageService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup recovery of the memory backend from its write-ahead log: {@code statements} small statements
+ * replayed either from the log alone or from a checkpoint snapshot, on {@code recoveryThreads} threads.
+ * Each statement has distinct content, so every replayed record is hashed and stored as its own blob.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class WalRecoveryBenchmark {
+
+    private static final int STATEMENT_BYTES = 128;
+    private static final int STATEMENTS_PER_CUSTOMER = 12;
+
+    @Param({"1000000"})
+    int statements;
+
+    @Param({"log", "snapshot"})
+    String source;
+
+    @Param({"1", "4"})
+    int recoveryThreads;
+
+    Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-bench");
+        try (DurableStorageService store = open(1)) {
+            for (int i = 0; i < statements; i++) {
+                StatementKey key = StatementKey.of(i / STATEMENTS_PER_CUSTOMER, 2024, 1 + i % STATEMENTS_PER_CUSTOMER);
+                byte[] content = new byte[STATEMENT_BYTES];
+                ByteBuffer.wrap(content).putLong(key.customerId()).putInt(key.period());
+                store.upload(key, content);
+            }
+            if (source.equals("snapshot")) {
+                store.checkpoint();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public StorageStats recover() throws IOException {
+        try (DurableStorageService store = open(recoveryThreads)) {
+            return store.stats();
+        }
+    }
+
+    private DurableStorageService open(final int threads) {
+        return new DurableStorageService(new InMemoryStorageService(), directory, false, threads);
+    }
+}
@@ -0,0 +1,122 @@
+package za.co.statements.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import za.co.statements.exception.DownloadThrottledException;
+import za.co.statements.logging.LogSummary;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for the unauthenticated public download endpoint. Each request first takes a token from the
+ * bucket of its client address and then from the bucket of its download token, before the token is validated
+ * or any statement read, so a flood of guessed or replayed tokens is turned away for the price of two hashes.
+ * Admitted downloads then reserve the statement's size against a limit on the bytes being served at once,
+ * released when the response completes, which keeps month-end spikes from queueing every download behind
+ * each other. Refusals are {@link DownloadThrottledException}s, answered with {@code 429} and
+ * {@code Retry-After}.
+ * <p>
+ * Limits are set under {@code statement.download.admission}; a rate or byte limit of 0 turns that check off.
+ * The client address is the request's remote address, so behind a proxy set
+ * {@code server.forward-headers-strategy} for it to be the client's.
+ */
+@Slf4j
+@Component
+public class DownloadAdmission {
+
+    private static final String RESERVED_ATTRIBUTE = DownloadAdmission.class.getName() + ".reserved";
+    private static final long RETRY_AFTER_BUSY_SECONDS = 1;
+
+    private final TokenBucketLimiter perClient;
+    private final TokenBucketLimiter perToken;
+    private final InFlightBytesLimiter inFlight;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedClient = new LongAdder();
+    private final LongAdder rejectedToken = new LongAdder();
+    private final LongAdder rejectedBusy = new LongAdder();
+    private final LogSummary rejected = LogSummary.warn(log, "Throttled {} public downloads in the last {} s");
+
+    public DownloadAdmission(
+            @Value("${statement.download.admission.per-client.rate:10}") final double clientRate,
+            @Value("${statement.download.admission.per-client.burst:50}") final int clientBurst,
+            @Value("${statement.download.admission.per-token.rate:1}") final double tokenRate,
+            @Value("${statement.download.admission.per-token.burst:10}") final int tokenBurst,
+            @Value("${statement.download.admission.stripes:16384}") final int stripes,
+            @Value("${statement.download.admission.max-in-flight:256MB}") final DataSize maxInFlight) {
+
+        this.perClient = clientRate > 0 ? new TokenBucketLimiter(clientRate, clientBurst, stripes) : null;
+        this.perToken = tokenRate > 0 ? new TokenBucketLimiter(tokenRate, tokenBurst, stripes) : null;
+        this.inFlight = maxInFlight.toBytes() > 0 ? new InFlightBytesLimiter(maxInFlight.toBytes()) : null;
+    }
+
+    /** Takes a token from the client's and the download token's buckets, or throws with the time to wait. */
+    public void admit(final String clientAddress, final String token) {
+        if (perClient != null) {
+            long wait = perClient.tryAcquire(clientAddress);
+            if (wait > 0) {
+                throw reject(rejectedClient, "Too many downloads from this client", wait);
+            }
+        }
+        if (perToken != null && token != null) {
+            long wait = perToken.tryAcquire(token);
+            if (wait > 0) {
+                throw reject(rejectedToken, "Too many downloads of this link", wait);
+            }
+        }
+        admitted.increment();
+    }
+
+    /**
+     * Counts a download of {@code bytes} as in flight until {@link #release} is called for the same request,
+     * or throws when the server is already serving its limit.
+     */
+    public void reserve(final HttpServletRequest request, final long bytes) {
+        if (inFlight == null) {
+            return;
+        }
+        if (!inFlight.tryReserve(bytes)) {
+            throw reject(rejectedBusy, "Too many downloads in progress",
+                    TimeUnit.SECONDS.toNanos(RETRY_AFTER_BUSY_SECONDS));
+        }
+        request.setAttribute(RESERVED_ATTRIBUTE, bytes);
+    }
+
+    public void release(final HttpServletRequest request) {
+        if (request.getAttribute(RESERVED_ATTRIBUTE) instanceof Long bytes) {
+            request.removeAttribute(RESERVED_ATTRIBUTE);
+            inFlight.release(bytes);
+        }
+    }
+
+    private DownloadThrottledException reject(final LongAdder counter, final String message, final long waitNanos) {
+        counter.increment();
+        rejected.record();
+        // Rounded up, so a client retrying on time finds a token
+        return new DownloadThrottledException(message, Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000));
+    }
+
+    public long admittedCount() {
+        return admitted.sum();
+    }
+
+    public long rejectedClientCount() {
+        return rejectedClient.sum();
+    }
+
+    public long rejectedTokenCount() {
+        return rejectedToken.sum();
+    }
+
+    public long rejectedBusyCount() {
+        return rejectedBusy.sum();
+    }
+
+    public long inFlightBytes() {
+        return inFlight == null ? 0 : inFlight.inFlight();
+    }
+}
@@ -0,0 +1,42 @@
+package za.co.statements.admission;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Applies {@link DownloadAdmission} to the public download and export endpoints: the rate limits before the
+ * controller runs, and the release of the in-flight reservation once the response has been written. A streamed
+ * export is dispatched a second time when its body is complete; that dispatch only releases, so it is not
+ * counted twice. Rejections thrown here are answered by the exception handler like any other.
+ */
+@RequiredArgsConstructor
+public class DownloadAdmissionInterceptor implements HandlerInterceptor {
+
+    private final DownloadAdmission admission;
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            admission.admit(request.getRemoteAddr(), token(request));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                                final Object handler, final Exception ex) {
+        admission.release(request);
+    }
+
+    private static String token(final HttpServletRequest request) {
+        return request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE) instanceof Map<?, ?> variables
+                && variables.get("token") instanceof String token ? token : null;
+    }
+}
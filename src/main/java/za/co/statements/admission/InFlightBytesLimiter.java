@@ -0,0 +1,45 @@
+package za.co.statements.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the bytes of all downloads being served at once. Unlike a semaphore it never queues: a download that
+ * does not fit is refused straight away. One larger than the whole limit is still let through while nothing
+ * else is in flight, so an oversized statement remains downloadable.
+ */
+final class InFlightBytesLimiter {
+
+    private final long maxBytes;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    InFlightBytesLimiter(final long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("In-flight byte limit must be positive, was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    boolean tryReserve(final long bytes) {
+        while (true) {
+            long current = inFlight.get();
+            if (current > 0 && current + bytes > maxBytes) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    void release(final long bytes) {
+        inFlight.addAndGet(-bytes);
+    }
+
+    long inFlight() {
+        return inFlight.get();
+    }
+
+    long maxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,79 @@
+package za.co.statements.admission;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets for an unbounded set of keys (client addresses, download tokens) in a fixed array of stripes.
+ * A key is hashed to a stripe and the stripe is the bucket, so memory does not grow with the number of clients
+ * and nothing has to be expired. Keys that share a stripe share its budget, which only ever makes the limit
+ * stricter for them; the hash is seeded per instance, so which keys collide cannot be worked out from outside.
+ * <p>
+ * Each stripe is one long, the theoretical arrival time of the next request (the generic cell rate algorithm,
+ * equivalent to a bucket of {@code burst} tokens refilled at {@code ratePerSecond}), updated with a
+ * compare-and-set. Admitting a request is a hash and one CAS, without locks or allocation.
+ */
+final class TokenBucketLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final AtomicLongArray arrivals;
+    private final int shift;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param ratePerSecond sustained requests per second per key
+     * @param burst         requests a key may make at once after being idle
+     * @param stripes       number of buckets, rounded up to a power of two
+     */
+    TokenBucketLimiter(final double ratePerSecond, final int burst, final int stripes) {
+        if (ratePerSecond <= 0 || burst < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Rate, burst and stripes must be positive, were "
+                    + ratePerSecond + ", " + burst + " and " + stripes);
+        }
+        int size = Integer.highestOneBit(Math.max(2, stripes) * 2 - 1);
+        this.arrivals = new AtomicLongArray(size);
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(size);
+        this.intervalNanos = Math.max(1, (long) (NANOS_PER_SECOND / ratePerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /** Takes a token for {@code key}; returns 0 when admitted, otherwise the nanoseconds until one is free. */
+    long tryAcquire(final String key) {
+        return tryAcquire(key, System.nanoTime() - origin);
+    }
+
+    /** {@code now} is in nanoseconds on the limiter's own clock, which starts at 0 with every stripe full. */
+    long tryAcquire(final String key, final long now) {
+        int stripe = stripe(key);
+        while (true) {
+            long arrival = arrivals.get(stripe);
+            long next = Math.max(arrival, now);
+            long wait = next - toleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrivals.compareAndSet(stripe, arrival, next + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    int stripes() {
+        return arrivals.length();
+    }
+
+    private int stripe(final String key) {
+        long hash = seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        // Final mix of the 64-bit MurmurHash3 finaliser, so keys differing in their last character spread out
+        hash = (hash ^ hash >>> 33) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ hash >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return (int) ((hash ^ hash >>> 33) >>> shift);
+    }
+}
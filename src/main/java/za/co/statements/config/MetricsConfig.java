@@ -0,0 +1,114 @@
+package za.co.statements.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import za.co.statements.admission.DownloadAdmission;
+import za.co.statements.service.StorageService;
+import za.co.statements.storage.CachingStorageService;
+import za.co.statements.token.DownloadTokenStore;
+
+/**
+ * Micrometer wiring. {@code @Timed} methods (save, download-link, download, list, token validate and purge)
+ * are timed by the {@link TimedAspect} with percentile histograms. Storage and token state are exposed as
+ * gauges and counters that read the backends' own counters on scrape, so the hot paths carry no extra cost.
+ * Public download admission is reported the same way.
+ * Everything is scraped from {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(final MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder storageMetrics(final StorageService storageService) {
+        return registry -> {
+            Gauge.builder("statement.storage.statements", storageService, storage -> storage.stats().statements())
+                    .description("Number of stored statements")
+                    .register(registry);
+            Gauge.builder("statement.storage.logical", storageService, storage -> storage.stats().logicalBytes())
+                    .description("Total size of the stored statements as uploaded")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("statement.storage.stored", storageService, storage -> storage.stats().storedBytes())
+                    .description("Bytes held for statement content after deduplication and compression")
+                    .baseUnit("bytes")
+                    .register(registry);
+
+            if (storageService.capacity() != null) {
+                Gauge.builder("statement.storage.resident", storageService,
+                                storage -> storage.capacity().residentBytes())
+                        .description("Bytes held for statements, as counted against the backend's max-size")
+                        .baseUnit("bytes")
+                        .register(registry);
+                FunctionCounter.builder("statement.storage.rejected", storageService,
+                                storage -> storage.capacity().rejectedUploads())
+                        .description("Uploads refused because the store was at capacity")
+                        .register(registry);
+            }
+
+            if (storageService instanceof CachingStorageService caching) {
+                // cache_gets{result=hit|miss}, cache_evictions, cache_eviction_weight, cache_size
+                CaffeineCacheMetrics.monitor(registry, caching.cache(), "statement-storage");
+                Gauge.builder("statement.storage.cache", caching, CachingStorageService::cachedBytes)
+                        .description("Bytes held by the read cache")
+                        .baseUnit("bytes")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder tokenMetrics(final DownloadTokenStore tokenStore) {
+        return registry -> {
+            Gauge.builder("statement.tokens.live", tokenStore, DownloadTokenStore::liveTokenCount)
+                    .description("Token entries held in memory")
+                    .register(registry);
+            FunctionCounter.builder("statement.tokens.purged", tokenStore, DownloadTokenStore::purgedTokenCount)
+                    .description("Expired token entries dropped")
+                    .register(registry);
+            FunctionCounter.builder("statement.tokens.rejected", tokenStore, DownloadTokenStore::expiredTokenHits)
+                    .description("Download attempts rejected by token state")
+                    .tag("reason", "expired")
+                    .register(registry);
+            FunctionCounter.builder("statement.tokens.rejected", tokenStore, DownloadTokenStore::invalidTokenHits)
+                    .description("Download attempts rejected by token state")
+                    .tag("reason", "invalid")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder downloadAdmissionMetrics(final DownloadAdmission admission) {
+        return registry -> {
+            FunctionCounter.builder("statement.download.admitted", admission, DownloadAdmission::admittedCount)
+                    .description("Public downloads let through the rate limits")
+                    .register(registry);
+            FunctionCounter.builder("statement.download.throttled", admission,
+                            DownloadAdmission::rejectedClientCount)
+                    .description("Public downloads refused with 429")
+                    .tag("reason", "client")
+                    .register(registry);
+            FunctionCounter.builder("statement.download.throttled", admission, DownloadAdmission::rejectedTokenCount)
+                    .description("Public downloads refused with 429")
+                    .tag("reason", "token")
+                    .register(registry);
+            FunctionCounter.builder("statement.download.throttled", admission, DownloadAdmission::rejectedBusyCount)
+                    .description("Public downloads refused with 429")
+                    .tag("reason", "in-flight")
+                    .register(registry);
+            Gauge.builder("statement.download.in-flight", admission, DownloadAdmission::inFlightBytes)
+                    .description("Bytes of public downloads being served, as counted against max-in-flight")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
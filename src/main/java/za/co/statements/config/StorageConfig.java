@@ -0,0 +1,114 @@
+package za.co.statements.config;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import za.co.statements.service.StorageService;
+import za.co.statements.storage.CachingStorageService;
+import za.co.statements.storage.DurableStorageService;
+import za.co.statements.storage.InMemoryStorageService;
+import za.co.statements.storage.OffHeapStorageService;
+import za.co.statements.storage.SegmentStorageService;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Selects the statement storage backend via {@code storage.backend}:
+ * {@code memory} (default) keeps PDFs on heap, {@code segment} appends them to files under {@code storage.base-path}.
+ * The memory backend is sharded by customer and refuses uploads past {@code storage.memory.max-size}, by default
+ * half the maximum heap. {@code offheap} keeps PDFs in direct memory outside the heap, up to
+ * {@code storage.offheap.max-size}, by default the JVM's direct memory limit.
+ * The segment backend gets a byte-budgeted read cache in front of it unless {@code storage.cache.enabled} is false.
+ * With {@code storage.wal.enabled} the memory backend logs every upload and is rebuilt from the log on startup.
+ */
+@Configuration
+public class StorageConfig {
+
+    /** Directory under {@code storage.base-path} holding the write-ahead logs of heap-held state. */
+    public static final String WAL_DIRECTORY = "wal";
+
+    private static final DataSize MAX_SEGMENT_SIZE = DataSize.ofGigabytes(1);
+    private static final DataSize MAX_SLAB_SIZE = DataSize.ofGigabytes(1);
+    private static final int SHARDS_PER_CORE = 4;
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "memory", matchIfMissing = true)
+    public StorageService inMemoryStorageService(
+            @Value("${storage.memory.compress:false}") final boolean compress,
+            @Value("${storage.memory.shards:0}") final int shards,
+            @Value("${storage.memory.max-size:0}") final DataSize maxSize,
+            @Value("${storage.memory.max-shard-size:0}") final DataSize maxShardSize,
+            @Value("${storage.wal.enabled:false}") final boolean walEnabled,
+            @Value("${storage.wal.fsync:true}") final boolean fsync,
+            @Value("${storage.wal.recovery-threads:0}") final int recoveryThreads,
+            @Value("${storage.base-path:./storage}") final Path basePath) {
+
+        InMemoryStorageService memory = new InMemoryStorageService(compress,
+                shards > 0 ? shards : SHARDS_PER_CORE * Runtime.getRuntime().availableProcessors(),
+                maxSize.toBytes() > 0 ? maxSize.toBytes() : Runtime.getRuntime().maxMemory() / 2,
+                maxShardSize.toBytes() > 0 ? maxShardSize.toBytes() : Long.MAX_VALUE);
+        if (!walEnabled) {
+            return memory;
+        }
+        return new DurableStorageService(memory, basePath.resolve(WAL_DIRECTORY).resolve("statements"), fsync,
+                recoveryThreads > 0 ? recoveryThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "offheap")
+    public StorageService offHeapStorageService(
+            @Value("${storage.offheap.slab-size:64MB}") final DataSize slabSize,
+            @Value("${storage.offheap.max-size:0}") final DataSize maxSize,
+            @Value("${storage.offheap.compaction-threshold:0.5}") final double compactionThreshold) {
+
+        if (slabSize.compareTo(MAX_SLAB_SIZE) > 0) {
+            throw new IllegalArgumentException("storage.offheap.slab-size must not exceed " + MAX_SLAB_SIZE);
+        }
+        return new OffHeapStorageService((int) slabSize.toBytes(),
+                maxSize.toBytes() > 0 ? maxSize.toBytes() : maxDirectMemory(), compactionThreshold);
+    }
+
+    /** {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap when not set. */
+    private static long maxDirectMemory() {
+        String configured = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                .getVMOption("MaxDirectMemorySize").getValue();
+        long bytes = Long.parseLong(configured);
+        return bytes > 0 ? bytes : Runtime.getRuntime().maxMemory();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "segment")
+    public StorageService segmentStorageService(
+            @Value("${storage.base-path}") final Path basePath,
+            @Value("${storage.segment.max-size:512MB}") final DataSize maxSegmentSize,
+            @Value("${storage.cache.enabled:true}") final boolean cacheEnabled,
+            @Value("${storage.cache.max-size:256MB}") final DataSize cacheSize,
+            @Value("${storage.cache.prewarm-newest-period:true}") final boolean prewarm,
+            @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+
+        if (maxSegmentSize.compareTo(MAX_SEGMENT_SIZE) > 0) {
+            throw new IllegalArgumentException("storage.segment.max-size must not exceed " + MAX_SEGMENT_SIZE);
+        }
+        SegmentStorageService segments = new SegmentStorageService(basePath, maxSegmentSize.toBytes());
+        return cacheEnabled
+                ? new CachingStorageService(segments, cacheSize.toBytes(), prewarm, cacheLoaders(virtualThreads))
+                : segments;
+    }
+
+    /**
+     * Threads for cache loads. Readers wait for their load, so there are as many as there are concurrent misses,
+     * as virtual threads or as daemon platform threads that are dropped after a minute idle.
+     */
+    private static Executor cacheLoaders(final boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cache-load-", 1).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("cache-load-", 1).daemon().factory());
+    }
+}
@@ -0,0 +1,54 @@
+package za.co.statements.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import za.co.statements.token.DownloadTokenStore;
+import za.co.statements.token.InMemoryDownloadTokenStore;
+import za.co.statements.token.SignedDownloadTokenStore;
+
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Selects the download token mode via {@code statement.token.mode}:
+ * {@code store} (default) keeps every token in memory, {@code signed} issues stateless HMAC-signed tokens.
+ * Stored tokens are also logged to disk when {@code storage.wal.enabled} is set, so they survive restarts.
+ */
+@Configuration
+@Slf4j
+public class TokenConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "statement.token.mode", havingValue = "store", matchIfMissing = true)
+    public DownloadTokenStore inMemoryDownloadTokenStore(
+            @Value("${storage.wal.enabled:false}") final boolean walEnabled,
+            @Value("${storage.wal.fsync:true}") final boolean fsync,
+            @Value("${storage.wal.recovery-threads:0}") final int recoveryThreads,
+            @Value("${storage.base-path:./storage}") final Path basePath) {
+
+        if (!walEnabled) {
+            return new InMemoryDownloadTokenStore();
+        }
+        return new InMemoryDownloadTokenStore(basePath.resolve(StorageConfig.WAL_DIRECTORY).resolve("tokens"), fsync,
+                recoveryThreads > 0 ? recoveryThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "statement.token.mode", havingValue = "signed")
+    public DownloadTokenStore signedDownloadTokenStore(
+            @Value("${statement.token.signing-key:}") final String signingKey) {
+
+        if (signingKey.isBlank()) {
+            log.warn("statement.token.signing-key is not set; using a random key. "
+                    + "Tokens will not validate on other instances or after a restart.");
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            return new SignedDownloadTokenStore(key);
+        }
+        return new SignedDownloadTokenStore(Base64.getDecoder().decode(signingKey));
+    }
+}
@@ -0,0 +1,22 @@
+package za.co.statements.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import za.co.statements.admission.DownloadAdmission;
+import za.co.statements.admission.DownloadAdmissionInterceptor;
+
+/** Puts admission control in front of the public statement download and export. */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final DownloadAdmission downloadAdmission;
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(new DownloadAdmissionInterceptor(downloadAdmission))
+                .addPathPatterns("/api/public/download/*", "/api/public/export/*");
+    }
+}
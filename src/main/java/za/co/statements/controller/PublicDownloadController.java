@@ -6,13 +6,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import za.co.statements.admission.DownloadAdmission;
 import za.co.statements.dto.response.ErrorResponse;
+import za.co.statements.logging.RedactedToken;
 import lombok.RequiredArgsConstructor;
+import za.co.statements.service.StatementExport;
+import za.co.statements.service.StatementExportService;
 import za.co.statements.service.StatementService;
+import za.co.statements.service.StoredObject;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +36,8 @@ import org.springframework.web.bind.annotation.*;
 public class PublicDownloadController {
 
     private final StatementService statementService;
+    private final StatementExportService statementExportService;
+    private final DownloadAdmission downloadAdmission;
 
     @Operation(
             summary = "Download statement via token",
@@ -34,23 +45,78 @@ public class PublicDownloadController {
                     Downloads a PDF statement using a temporary secure token.
                     The token is created via the `/api/statements/{customerId}/{year}/{month}/download-link` endpoint
                     and expires in a few minutes.
+
+                    The PDF is streamed from storage. `Range` requests are answered with `206 Partial Content`,
+                    and repeat downloads sending the returned `ETag` in `If-None-Match` get `304 Not Modified`.
+
+                    Downloads are rate limited per client and per token, and the bytes being served at once are
+                    capped. Requests over a limit get `429 Too Many Requests` with a `Retry-After` in seconds.
                     """
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "PDF downloaded successfully",
                     content = @Content(mediaType = "application/pdf")),
+            @ApiResponse(responseCode = "206", description = "Requested byte range of the PDF",
+                    content = @Content(mediaType = "application/pdf")),
+            @ApiResponse(responseCode = "304", description = "PDF unchanged since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "400", description = "Invalid or expired token",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Download limit reached, retry after Retry-After",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/download/{token}")
-    public ResponseEntity<byte[]> download(@PathVariable String token) {
-        log.info("Downloading via token={}", token);
+    public ResponseEntity<Resource> download(@PathVariable String token, HttpServletRequest request) {
+        log.debug("Downloading via token={}", RedactedToken.of(token));
 
-        byte[] pdf = statementService.downloadViaToken(token);
+        StoredObject pdf = statementService.downloadViaToken(token);
+        // Released by the admission interceptor once the body has been written
+        downloadAdmission.reserve(request, pdf.size());
 
+        // Spring MVC answers If-None-Match with 304 and Range with 206 for Resource bodies
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=statement.pdf")
-                .body(pdf);
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(pdf.etag())
+                .body(pdf.content());
+    }
+
+    @Operation(
+            summary = "Download a ZIP of statements via export token",
+            description = """
+                    Streams a ZIP archive of the statements an export token covers. The token is created via the
+                    `/api/statements/{customerId}/export-link` endpoint and expires in a few minutes.
+
+                    Entries are stored uncompressed and copied straight from storage into the response, one
+                    statement at a time, so the download starts at once. The response is chunked rather than
+                    sent with a `Content-Length`, as a statement replaced or removed while the archive streams
+                    changes its size.
+
+                    Exports share the rate limits and the cap on bytes served at once with the PDF download, and
+                    requests over a limit get `429 Too Many Requests` with a `Retry-After` in seconds.
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "ZIP streamed",
+                    content = @Content(mediaType = "application/zip")),
+            @ApiResponse(responseCode = "400", description = "Invalid or expired token",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Download limit reached, retry after Retry-After",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/export/{token}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String token, HttpServletRequest request) {
+        log.debug("Exporting via token={}", RedactedToken.of(token));
+
+        // Resolved up front so a bad token fails before the response is committed
+        StatementExport export = statementExportService.openExport(token);
+        // Held while the archive streams, released by the admission interceptor once it is complete
+        downloadAdmission.reserve(request, export.bytes());
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + export.filename())
+                .cacheControl(CacheControl.noStore())
+                .body(output -> statementExportService.writeZip(export, output));
     }
 }
@@ -9,6 +9,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import za.co.statements.dto.response.ErrorResponse;
@@ -17,8 +18,18 @@ import org.springframework.web.bind.annotation.*;
 
 import org.springframework.web.multipart.MultipartFile;
 import za.co.statements.dto.StatementMetadataDto;
+import za.co.statements.dto.response.BulkUploadResponse;
 import za.co.statements.dto.response.DownloadLinkResponse;
+import za.co.statements.dto.response.DownloadLinksResponse;
+import za.co.statements.dto.response.RenderBatchResponse;
+import za.co.statements.dto.response.StatementCursorResponse;
 import za.co.statements.dto.response.UploadResponse;
+import za.co.statements.exception.InvalidStatementKeyException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementKeyParser;
+import za.co.statements.service.BulkIngestionService;
+import za.co.statements.service.StatementExportService;
+import za.co.statements.service.StatementRenderingService;
 import za.co.statements.service.StatementService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -27,9 +38,9 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.data.domain.Sort;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.YearMonth;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 @RestController
 @Slf4j
@@ -42,6 +53,9 @@ import java.util.regex.Pattern;
 public class StatementController {
 
     private final StatementService statementService;
+    private final BulkIngestionService bulkIngestionService;
+    private final StatementExportService statementExportService;
+    private final StatementRenderingService statementRenderingService;
 
 // --------------------------------------------------------------
 // Upload Statement (Multipart PDF Upload — Filename-Based)
@@ -99,36 +113,110 @@ public class StatementController {
             return ResponseEntity.badRequest().body("File is empty");
         }
 
-        String filename = file.getOriginalFilename();
-        if (filename == null || !filename.matches("statement_\\d+_\\d{4}_\\d{1,2}.*")) {
-            return ResponseEntity.badRequest()
-                    .body("Invalid filename format. Expected: statement_<customerId>_<year>_<month>");
+        StatementKey key;
+        try {
+            key = StatementKeyParser.parseFilename(file.getOriginalFilename());
+        } catch (InvalidStatementKeyException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
 
-        Pattern pattern = Pattern.compile("statement_(\\d+)_(\\d{4})_(\\d{1,2})");
-        Matcher matcher = pattern.matcher(filename);
-
-        if (!matcher.find()) {
-            return ResponseEntity.badRequest()
-                    .body("Unable to extract customerId, year, month from filename.");
+        // Stream the part (spooled to disk by the multipart resolver) straight into storage
+        try (InputStream pdf = file.getInputStream()) {
+            statementService.saveStatement(
+                    key.customerId(),
+                    key.yearMonth(),
+                    pdf,
+                    file.getSize()
+            );
         }
 
-        long customerId = Long.parseLong(matcher.group(1));
-        int year = Integer.parseInt(matcher.group(2));
-        int month = Integer.parseInt(matcher.group(3));
+        // ✔ Clean text-only response
+        return ResponseEntity.ok("Statement Uploaded");
+    }
 
-        byte[] pdfBytes = file.getBytes();
 
-        statementService.saveStatement(
-                customerId,
-                YearMonth.of(year, month),
-                pdfBytes
-        );
+    // --------------------------------------------------------------
+    // Bulk Upload (month-end runs)
+    // --------------------------------------------------------------
 
-        // ✔ Clean text-only response
-        return ResponseEntity.ok("Statement Uploaded");
+    @Operation(
+            summary = "Bulk upload statement PDFs from a ZIP archive",
+            description = """
+                    Streams a ZIP archive sent as the raw request body (`Content-Type: application/zip`).
+                    Every entry must be named `statement_<customerId>_<year>_<month>.pdf`; folders inside
+                    the archive are ignored.
+
+                    Entries are stored in parallel while the archive is still being read, and the response
+                    reports the outcome of every entry. An invalid entry does not fail the whole batch.
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Archive processed, see per-entry results",
+            content = @Content(schema = @Schema(implementation = BulkUploadResponse.class)))
+    @PostMapping(value = "/bulk", consumes = "application/zip")
+    public ResponseEntity<BulkUploadResponse> bulkUploadZip(InputStream archive) throws IOException {
+        return ResponseEntity.ok(bulkIngestionService.ingestZip(archive));
     }
 
+    @Operation(
+            summary = "Bulk upload several statement PDFs in one multipart request",
+            description = """
+                    Accepts any number of `files` parts, each named `statement_<customerId>_<year>_<month>.pdf`.
+                    The response reports the outcome of every file.
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Files processed, see per-entry results",
+            content = @Content(schema = @Schema(implementation = BulkUploadResponse.class)))
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BulkUploadResponse> bulkUploadFiles(@RequestParam("files") List<MultipartFile> files)
+            throws IOException {
+        return ResponseEntity.ok(bulkIngestionService.ingestFiles(files));
+    }
+
+    // --------------------------------------------------------------
+    // Server-side Rendering
+    // --------------------------------------------------------------
+
+    @Operation(
+            summary = "Render and store statements from JSON data",
+            description = """
+                    Streams a JSON array of statements, each with `customerId`, `period` (`yyyy-MM`),
+                    `customerName` and `lines` of `date`, `description` and `amount` (credits positive).
+                    Every statement is rendered to PDF on the server and stored under its customer and
+                    period, replacing any statement already stored there.
+
+                    Statements are rendered in parallel while the body is still being read. The response
+                    counts the stored statements and lists the ones that failed.
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch rendered, see counts and failures",
+                    content = @Content(schema = @Schema(implementation = RenderBatchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed statement data",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping(value = "/render", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public RenderBatchResponse renderJson(InputStream body) throws IOException {
+        return statementRenderingService.renderJson(body);
+    }
+
+    @Operation(
+            summary = "Render and store statements from CSV data",
+            description = """
+                    Streams CSV with the header `customerId,period,customerName,date,description,amount` and
+                    one transaction per line. Consecutive lines with the same customer and period form one
+                    statement. Fields containing commas must be quoted.
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch rendered, see counts and failures",
+                    content = @Content(schema = @Schema(implementation = RenderBatchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed statement data",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping(value = "/render", consumes = "text/csv")
+    public RenderBatchResponse renderCsv(InputStream body) {
+        return statementRenderingService.renderCsv(body);
+    }
 
     // --------------------------------------------------------------
     // Create Download Link
@@ -149,21 +237,91 @@ public class StatementController {
             @Parameter(name = "month", example = "1")
     })
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Download link created"),
-            @ApiResponse(responseCode = "404", description = "Statement not found")
+            @ApiResponse(responseCode = "200", description = "Download link created",
+                    content = @Content(schema = @Schema(implementation = DownloadLinkResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid year or month",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Statement not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/{customerId}/{year}/{month}/download-link")
-    public ResponseEntity<DownloadLinkResponse> getDownloadLink(
+    public ResponseEntity<?> getDownloadLink(
             @PathVariable Long customerId,
             @PathVariable int year,
             @PathVariable int month) {
 
-        DownloadLinkResponse link = statementService.createDownloadLink(
-                customerId,
-                YearMonth.of(year, month)
-        );
+        YearMonth period = StatementKeyParser.yearMonth(year, month);
+
+        // A miss is a plain 404 response rather than an exception through the handler chain
+        return statementService.findDownloadLink(customerId, period)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ErrorResponse(StatementService.notFoundMessage(customerId, period))));
+    }
 
-        return ResponseEntity.ok(link);
+    @Operation(
+            summary = "Generate download links for several statements at once",
+            description = """
+                    Generates time-limited download links for a customer's statements in one call, either
+                    for a list of periods or for every month in a range (at most 100). All links expire
+                    together. Requested periods without a statement are listed under `missing`.
+
+                    Example:
+                    GET /api/statements/123/download-links?from=2023-01&to=2024-12
+                    GET /api/statements/123/download-links?periods=2024-01,2024-03
+                    """
+    )
+    @Parameters({
+            @Parameter(name = "customerId", example = "12345"),
+            @Parameter(name = "periods", example = "2024-01,2024-03", description = "Periods as yyyy-MM"),
+            @Parameter(name = "from", example = "2023-01", description = "First month of the range"),
+            @Parameter(name = "to", example = "2024-12", description = "Last month of the range")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Download links created"),
+            @ApiResponse(responseCode = "400", description = "Invalid or missing periods",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/{customerId}/download-links")
+    public DownloadLinksResponse getDownloadLinks(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) List<String> periods,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+
+        return statementService.createDownloadLinks(customerId, periods, from, to);
+    }
+
+    @Operation(
+            summary = "Generate a link to a ZIP of a customer's statements",
+            description = """
+                    Generates one time-limited link to a ZIP archive of every statement of the customer from
+                    `from` to `to` inclusive, at most 100 months. The archive is streamed from storage when the
+                    link is followed, with one `statement_<customerId>_<year>_<month>.pdf` entry per statement.
+
+                    Example:
+                    GET /api/statements/123/export-link?from=2022-01&to=2024-12
+                    """
+    )
+    @Parameters({
+            @Parameter(name = "customerId", example = "12345"),
+            @Parameter(name = "from", example = "2022-01", description = "First month of the range"),
+            @Parameter(name = "to", example = "2024-12", description = "Last month of the range")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export link created"),
+            @ApiResponse(responseCode = "400", description = "Invalid period range",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "No statements in the range",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/{customerId}/export-link")
+    public DownloadLinkResponse getExportLink(
+            @PathVariable Long customerId,
+            @RequestParam String from,
+            @RequestParam String to) {
+
+        return statementExportService.createExportLink(customerId, from, to);
     }
 
     // --------------------------------------------------------------
@@ -197,7 +355,7 @@ public class StatementController {
             @PageableDefault(size = 10, sort = "period", direction = Sort.Direction.DESC)
             Pageable pageable) {
 
-        log.info("Listing statements for customerId={} page={} size={} sort={}",
+        log.debug("Listing statements for customerId={} page={} size={} sort={}",
                 customerId,
                 pageable.getPageNumber(),
                 pageable.getPageSize(),
@@ -206,6 +364,39 @@ public class StatementController {
 
         return statementService.listStatements(customerId, pageable);
     }
+
+    @Operation(
+            summary = "List statements for a customer (cursor paginated)",
+            description = """
+                    Returns statements newest first, a page at a time. Pass the `nextCursor` of a page
+                    as `after` to get the next one; the last page has no `nextCursor`.
+                    No total count is computed, so every page is equally cheap, however long the history.
+
+                    Example:
+                    GET /api/statements/123?limit=20
+                    GET /api/statements/123?after=2024-03&limit=20
+                    """
+    )
+    @Parameters({
+            @Parameter(name = "customerId", example = "12345"),
+            @Parameter(name = "after", example = "2024-03", description = "Cursor: list periods before this one"),
+            @Parameter(name = "limit", example = "20", description = "Page size, 1 to 100")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Statements retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/{customerId}", params = "limit")
+    public StatementCursorResponse listAfter(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit) {
+
+        log.debug("Listing statements for customerId={} after={} limit={}", customerId, after, limit);
+
+        return statementService.listStatements(customerId, after, limit);
+    }
 }
 
 
@@ -0,0 +1,61 @@
+package za.co.statements.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import za.co.statements.dto.response.StorageReportResponse;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageService;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@RequiredArgsConstructor
+@Tag(
+        name = "Storage Administration",
+        description = "Operational views of the statement storage backend"
+)
+public class StorageAdminController {
+
+    private final StorageService storageService;
+
+    @Operation(
+            summary = "Report storage usage, deduplication and compression",
+            description = """
+                    Returns how many statements are stored and how many bytes they occupy.
+
+                    - `dedupRatio` = uploaded bytes / bytes of distinct content (identical re-uploads are held once)
+                    - `compressionRatio` = bytes of distinct content / bytes actually held after compression
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Storage report",
+            content = @Content(schema = @Schema(implementation = StorageReportResponse.class)))
+    @GetMapping("/report")
+    public ResponseEntity<StorageReportResponse> report() {
+        return ResponseEntity.ok(StorageReportResponse.from(storageService.stats()));
+    }
+
+    @Operation(
+            summary = "Report storage use against the capacity limits",
+            description = """
+                    Returns the bytes held against the configured limits and how many uploads were refused with
+                    `507 Insufficient Storage` because a limit would have been exceeded. The memory backend also
+                    lists its shards, a customer's statements all living in one; the off-heap backend reports totals
+                    only. Backends without a capacity limit, such as segment storage, answer `404`.
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Capacity report",
+            content = @Content(schema = @Schema(implementation = StorageCapacity.class)))
+    @ApiResponse(responseCode = "404", description = "The backend has no capacity limit")
+    @GetMapping("/shards")
+    public ResponseEntity<StorageCapacity> shards() {
+        StorageCapacity capacity = storageService.capacity();
+        return capacity == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(capacity);
+    }
+}
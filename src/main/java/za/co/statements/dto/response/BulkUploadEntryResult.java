@@ -0,0 +1,18 @@
+package za.co.statements.dto.response;
+
+public record BulkUploadEntryResult(String filename, Status status, String path, String message) {
+
+    public enum Status { STORED, REJECTED, FAILED }
+
+    public static BulkUploadEntryResult stored(final String filename, final String path) {
+        return new BulkUploadEntryResult(filename, Status.STORED, path, null);
+    }
+
+    public static BulkUploadEntryResult rejected(final String filename, final String message) {
+        return new BulkUploadEntryResult(filename, Status.REJECTED, null, message);
+    }
+
+    public static BulkUploadEntryResult failed(final String filename, final String message) {
+        return new BulkUploadEntryResult(filename, Status.FAILED, null, message);
+    }
+}
@@ -0,0 +1,11 @@
+package za.co.statements.dto.response;
+
+import java.util.List;
+
+public record BulkUploadResponse(
+        int total,
+        int stored,
+        int failed,
+        long elapsedMillis,
+        List<BulkUploadEntryResult> entries
+) {}
@@ -0,0 +1,11 @@
+package za.co.statements.dto.response;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Download links for several statements of one customer, newest first, all expiring together.
+ * {@code missing} lists the requested periods that have no statement.
+ */
+public record DownloadLinksResponse(Long customerId, long expiresInSeconds, List<StatementDownloadLink> links,
+                                    List<YearMonth> missing) {}
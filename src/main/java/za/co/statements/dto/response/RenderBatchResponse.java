@@ -0,0 +1,12 @@
+package za.co.statements.dto.response;
+
+import java.util.List;
+
+/** Outcome of a render batch; only failed statements are listed, at most the first hundred. */
+public record RenderBatchResponse(
+        int total,
+        int stored,
+        int failed,
+        long elapsedMillis,
+        List<BulkUploadEntryResult> failures
+) {}
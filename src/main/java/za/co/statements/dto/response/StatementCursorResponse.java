@@ -0,0 +1,11 @@
+package za.co.statements.dto.response;
+
+import za.co.statements.dto.StatementMetadataDto;
+
+import java.util.List;
+
+/**
+ * One page of a customer's statements, newest first. {@code nextCursor} is the period to pass as
+ * {@code after} for the next page, or {@code null} on the last page.
+ */
+public record StatementCursorResponse(List<StatementMetadataDto> statements, String nextCursor) {}
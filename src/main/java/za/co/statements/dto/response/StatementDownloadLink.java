@@ -0,0 +1,5 @@
+package za.co.statements.dto.response;
+
+import java.time.YearMonth;
+
+public record StatementDownloadLink(YearMonth period, String url) {}
@@ -0,0 +1,34 @@
+package za.co.statements.dto.response;
+
+import za.co.statements.service.StorageStats;
+
+public record StorageReportResponse(
+        String backend,
+        long statements,
+        long logicalBytes,
+        long uniqueBlobs,
+        long uniqueBytes,
+        long storedBytes,
+        double dedupRatio,
+        double compressionRatio,
+        long storedBytesPerStatement
+) {
+
+    public static StorageReportResponse from(final StorageStats stats) {
+        return new StorageReportResponse(
+                stats.backend(),
+                stats.statements(),
+                stats.logicalBytes(),
+                stats.uniqueBlobs(),
+                stats.uniqueBytes(),
+                stats.storedBytes(),
+                ratio(stats.logicalBytes(), stats.uniqueBytes()),
+                ratio(stats.uniqueBytes(), stats.storedBytes()),
+                stats.statements() == 0 ? 0 : stats.storedBytes() / stats.statements()
+        );
+    }
+
+    private static double ratio(final long before, final long after) {
+        return after == 0 ? 1.0 : (double) before / after;
+    }
+}
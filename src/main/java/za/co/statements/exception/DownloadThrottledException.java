@@ -0,0 +1,19 @@
+package za.co.statements.exception;
+
+import lombok.Getter;
+
+/**
+ * A public download was refused by admission control. Thrown for every request over the limit during a flood,
+ * so like {@link StatementNotFoundException} it carries no stack trace.
+ */
+@Getter
+public class DownloadThrottledException extends RuntimeException {
+
+    /** Whole seconds until a retry may be admitted, for the {@code Retry-After} header. */
+    private final long retryAfterSeconds;
+
+    public DownloadThrottledException(final String message, final long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,5 +1,6 @@
 package za.co.statements.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import za.co.statements.dto.response.ErrorResponse;
@@ -14,6 +15,25 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse(ex.getMessage()));
     }
 
+    @ExceptionHandler(StorageCapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleStorageFull(final StorageCapacityExceededException ex) {
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(DownloadThrottledException.class)
+    public ResponseEntity<ErrorResponse> handleThrottled(final DownloadThrottledException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidStatementKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidKey(final InvalidStatementKeyException ex) {
+        return ResponseEntity.badRequest()
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgument(final IllegalArgumentException ex) {
         return ResponseEntity.badRequest()
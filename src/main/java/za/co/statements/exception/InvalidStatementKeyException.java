@@ -0,0 +1,12 @@
+package za.co.statements.exception;
+
+/**
+ * A filename, storage path or period that does not name a statement, answered with {@code 400}. Thrown on the
+ * hot upload and bulk paths, where a rejection is an expected outcome, so no stack trace is captured.
+ */
+public class InvalidStatementKeyException extends RuntimeException {
+
+    public InvalidStatementKeyException(final String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,8 +1,12 @@
 package za.co.statements.exception;
 
+/**
+ * Thrown for statements that do not exist, an expected outcome rather than a fault, so it carries no stack
+ * trace: capturing one cost more than the lookup it reports on.
+ */
 public class StatementNotFoundException extends RuntimeException {
 
     public StatementNotFoundException(final String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
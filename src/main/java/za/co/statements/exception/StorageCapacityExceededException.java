@@ -0,0 +1,12 @@
+package za.co.statements.exception;
+
+/**
+ * An upload was refused because the storage backend is at its configured capacity. A full store refuses every
+ * upload until space is freed, so like {@link DownloadThrottledException} it carries no stack trace.
+ */
+public class StorageCapacityExceededException extends RuntimeException {
+
+    public StorageCapacityExceededException(final String message) {
+        super(message, null, false, false);
+    }
+}
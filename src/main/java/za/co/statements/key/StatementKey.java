@@ -0,0 +1,61 @@
+package za.co.statements.key;
+
+import java.time.YearMonth;
+
+/**
+ * Identifies one statement: a customer and a calendar month, with the month held as a {@code yyyymm} int
+ * so keys order by period and hash and compare on two primitives. This is the key used by storage, the
+ * index and download tokens; the {@code statements/<customerId>/<yyyy-MM>.pdf} path is only rendered
+ * for API responses, see {@link #path()}.
+ */
+public record StatementKey(long customerId, int period) {
+
+    private static final String PATH_PREFIX = "statements/";
+    private static final String FILENAME_PREFIX = "statement_";
+
+    public static StatementKey of(final long customerId, final YearMonth period) {
+        return of(customerId, period.getYear(), period.getMonthValue());
+    }
+
+    public static StatementKey of(final long customerId, final int year, final int month) {
+        return new StatementKey(customerId, year * 100 + month);
+    }
+
+    public int year() {
+        return period / 100;
+    }
+
+    public int month() {
+        return period % 100;
+    }
+
+    public YearMonth yearMonth() {
+        return YearMonth.of(year(), month());
+    }
+
+    /**
+     * Renders the external form, {@code statements/<customerId>/<yyyy-MM>.pdf}, which
+     * {@link StatementKeyParser#parsePath} reads back.
+     */
+    public String path() {
+        int year = year();
+        if (year < 1000) {
+            // YearMonth pads short years to four digits
+            return PATH_PREFIX + customerId + '/' + yearMonth() + ".pdf";
+        }
+        // One exact-size concatenation, no intermediate builder
+        int month = month();
+        return PATH_PREFIX + customerId + '/' + year + (month < 10 ? "-0" : "-") + month + ".pdf";
+    }
+
+    /**
+     * Renders the upload filename, {@code statement_<customerId>_<yyyy>_<MM>.pdf}, which
+     * {@link StatementKeyParser#parseFilename} reads back.
+     */
+    public String filename() {
+        int year = year();
+        int month = month();
+        String paddedYear = year < 1000 ? String.format("%04d", year) : Integer.toString(year);
+        return FILENAME_PREFIX + customerId + '_' + paddedYear + (month < 10 ? "_0" : "_") + month + ".pdf";
+    }
+}
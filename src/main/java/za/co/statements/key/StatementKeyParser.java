@@ -0,0 +1,170 @@
+package za.co.statements.key;
+
+import za.co.statements.exception.InvalidStatementKeyException;
+
+import java.time.YearMonth;
+
+/**
+ * Single-pass parser for the two places a statement key is spelled out: upload filenames
+ * ({@code statement_<customerId>_<year>_<month>.pdf}) and storage paths
+ * ({@code statements/<customerId>/<yyyy-MM>.pdf}).
+ * Digits are accumulated while scanning, so parsing allocates nothing but the resulting key.
+ * Customer ids must be positive and are limited to 18 digits so they cannot overflow a {@code long}, and
+ * months outside 1..12 are rejected here rather than failing later in {@code YearMonth.of}. Keys that arrive
+ * as numbers rather than text are held to the same rules by {@link #key(long, YearMonth)}.
+ */
+public final class StatementKeyParser {
+
+    private static final String FILENAME_PREFIX = "statement_";
+    private static final String PATH_PREFIX = "statements/";
+    private static final String PDF_SUFFIX = ".pdf";
+    private static final int MAX_CUSTOMER_ID_DIGITS = 18;
+    private static final long MAX_CUSTOMER_ID = 999_999_999_999_999_999L;
+    private static final int MAX_YEAR = 9999;
+
+    private static final String FILENAME_FORMAT =
+            "Invalid filename format. Expected: statement_<customerId>_<year>_<month>.pdf";
+
+    private StatementKeyParser() {
+    }
+
+    /**
+     * Parses an upload filename. Anything after the month that does not continue the number is ignored,
+     * e.g. {@code statement_123_2024_10.pdf} and {@code statement_123_2024_10 (1).pdf} both name 2024-10.
+     */
+    public static StatementKey parseFilename(final String filename) {
+        if (filename == null || !filename.startsWith(FILENAME_PREFIX)) {
+            throw new InvalidStatementKeyException(FILENAME_FORMAT);
+        }
+
+        int length = filename.length();
+        int position = FILENAME_PREFIX.length();
+
+        int start = position;
+        long customerId = 0;
+        while (position < length && isDigit(filename.charAt(position))) {
+            if (position - start == MAX_CUSTOMER_ID_DIGITS) {
+                throw new InvalidStatementKeyException("Customer id is too long in " + filename);
+            }
+            customerId = customerId * 10 + (filename.charAt(position++) - '0');
+        }
+        if (position == start || !charAt(filename, position++, '_')) {
+            throw new InvalidStatementKeyException(FILENAME_FORMAT);
+        }
+
+        int year = digits(filename, position, 4);
+        position += 4;
+        if (year < 0 || !charAt(filename, position++, '_')) {
+            throw new InvalidStatementKeyException(FILENAME_FORMAT);
+        }
+
+        start = position;
+        int month = 0;
+        while (position < length && position - start < 2 && isDigit(filename.charAt(position))) {
+            month = month * 10 + (filename.charAt(position++) - '0');
+        }
+        if (position == start || (position < length && isDigit(filename.charAt(position)))) {
+            throw new InvalidStatementKeyException(FILENAME_FORMAT);
+        }
+
+        return key(customerId, year, month, filename);
+    }
+
+    /** Parses a storage path as built for a statement, {@code statements/<customerId>/<yyyy-MM>.pdf}. */
+    public static StatementKey parsePath(final String path) {
+        if (path == null || !path.startsWith(PATH_PREFIX)) {
+            throw new InvalidStatementKeyException("Not a statement path: " + path);
+        }
+
+        int position = PATH_PREFIX.length();
+        int start = position;
+        long customerId = 0;
+        while (position < path.length() && isDigit(path.charAt(position))
+                && position - start < MAX_CUSTOMER_ID_DIGITS) {
+            customerId = customerId * 10 + (path.charAt(position++) - '0');
+        }
+
+        int year = digits(path, position + 1, 4);
+        int month = digits(path, position + 6, 2);
+        boolean wellFormed = position > start
+                && charAt(path, position, '/')
+                && year >= 0
+                && charAt(path, position + 5, '-')
+                && month >= 0
+                && path.length() == position + 8 + PDF_SUFFIX.length()
+                && path.startsWith(PDF_SUFFIX, position + 8);
+        if (!wellFormed) {
+            throw new InvalidStatementKeyException("Not a statement path: " + path);
+        }
+
+        return key(customerId, year, month, path);
+    }
+
+    /** Parses a {@code yyyy-MM} period, as used for listing cursors, into its {@code yyyymm} form. */
+    public static int parsePeriod(final String period) {
+        int year = period == null ? -1 : digits(period, 0, 4);
+        int month = year < 0 ? -1 : digits(period, 5, 2);
+        if (month < 0 || period.length() != 7 || period.charAt(4) != '-') {
+            throw new InvalidStatementKeyException("Invalid period " + period + ". Expected: yyyy-MM");
+        }
+        if (month < 1 || month > 12) {
+            throw new InvalidStatementKeyException("Invalid month " + month + " in " + period);
+        }
+        return year * 100 + month;
+    }
+
+    /** Checks a customer id and period taken from structured data, such as statement JSON or CSV. */
+    public static StatementKey key(final long customerId, final YearMonth period) {
+        if (customerId < 1 || customerId > MAX_CUSTOMER_ID) {
+            throw new InvalidStatementKeyException("Invalid customer id " + customerId
+                    + ". Expected: 1 to " + MAX_CUSTOMER_ID_DIGITS + " digits");
+        }
+        YearMonth checked = yearMonth(period.getYear(), period.getMonthValue());
+        return StatementKey.of(customerId, checked);
+    }
+
+    /** Checks a year and month given as separate numbers, as in a request path, against the same rules. */
+    public static YearMonth yearMonth(final int year, final int month) {
+        if (year < 0 || year > MAX_YEAR) {
+            throw new InvalidStatementKeyException("Invalid year " + year + ". Expected: yyyy");
+        }
+        if (month < 1 || month > 12) {
+            throw new InvalidStatementKeyException("Invalid month " + month + " in " + year + "/" + month);
+        }
+        return YearMonth.of(year, month);
+    }
+
+    private static StatementKey key(final long customerId, final int year, final int month, final String source) {
+        if (customerId < 1) {
+            throw new InvalidStatementKeyException("Invalid customer id " + customerId + " in " + source);
+        }
+        if (month < 1 || month > 12) {
+            throw new InvalidStatementKeyException("Invalid month " + month + " in " + source);
+        }
+        return StatementKey.of(customerId, year, month);
+    }
+
+    /** Value of exactly {@code count} digits at {@code offset}, or -1 if they are not all there. */
+    private static int digits(final String text, final int offset, final int count) {
+        if (offset + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean charAt(final String text, final int index, final char expected) {
+        return index < text.length() && text.charAt(index) == expected;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
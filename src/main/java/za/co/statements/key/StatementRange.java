@@ -0,0 +1,23 @@
+package za.co.statements.key;
+
+/**
+ * A customer's statements from {@code fromPeriod} to {@code toPeriod} inclusive, both {@code yyyymm}.
+ * Granted by export tokens, see {@link za.co.statements.token.DownloadTokenStore#generateExportToken}.
+ */
+public record StatementRange(long customerId, int fromPeriod, int toPeriod) {
+
+    public StatementRange {
+        if (fromPeriod > toPeriod) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+
+    /** Number of months from {@code fromPeriod} to {@code toPeriod}, both included. */
+    public int months() {
+        return toPeriod / 100 * 12 + toPeriod % 100 - (fromPeriod / 100 * 12 + fromPeriod % 100) + 1;
+    }
+
+    public boolean contains(final StatementKey key) {
+        return key.customerId() == customerId && key.period() >= fromPeriod && key.period() <= toPeriod;
+    }
+}
@@ -0,0 +1,54 @@
+package za.co.statements.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts a hot-path event and logs one summary line per interval instead of one line per event.
+ * <p>
+ * {@link #record()} is an uncontended counter increment on almost every call; only the call that first
+ * crosses the end of an interval logs, with the number of events in it. An interval with no events after
+ * it is reported with the next event. Per-event detail stays available at DEBUG.
+ */
+public final class LogSummary {
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+    private final Logger log;
+    private final Level level;
+    private final String message;
+    private final long intervalNanos;
+    private final LongAdder events = new LongAdder();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param message format with two placeholders: the number of events and the seconds they were counted over
+     */
+    public LogSummary(final Logger log, final Level level, final String message, final Duration interval) {
+        this.log = log;
+        this.level = level;
+        this.message = message;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public static LogSummary info(final Logger log, final String message) {
+        return new LogSummary(log, Level.INFO, message, DEFAULT_INTERVAL);
+    }
+
+    public static LogSummary warn(final Logger log, final String message) {
+        return new LogSummary(log, Level.WARN, message, DEFAULT_INTERVAL);
+    }
+
+    public void record() {
+        events.increment();
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            log.atLevel(level).log(message, events.sumThenReset(), (now - start) / 1_000_000_000);
+        }
+    }
+}
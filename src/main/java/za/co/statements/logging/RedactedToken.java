@@ -0,0 +1,33 @@
+package za.co.statements.logging;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Log argument standing in for a download token. It renders as the first 48 bits of the token's SHA-256,
+ * so lines about the same token can be matched up without the log holding a usable token. The hash is only
+ * computed if the line is actually written.
+ */
+public record RedactedToken(String token) {
+
+    private static final int FINGERPRINT_BYTES = 6;
+
+    public static RedactedToken of(final String token) {
+        return new RedactedToken(token);
+    }
+
+    @Override
+    public String toString() {
+        if (token == null) {
+            return "tok:null";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return "tok:" + HexFormat.of().formatHex(digest, 0, FINGERPRINT_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
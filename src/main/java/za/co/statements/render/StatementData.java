@@ -0,0 +1,28 @@
+package za.co.statements.render;
+
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementKeyParser;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/** Structured content of one statement, rendered to PDF by {@link StatementRenderer}. */
+public record StatementData(long customerId, YearMonth period, String customerName, List<StatementLine> lines) {
+
+    public StatementData {
+        if (period == null) {
+            throw new IllegalArgumentException("Statement for customer " + customerId + " has no period");
+        }
+        lines = lines == null ? List.of() : List.copyOf(lines);
+    }
+
+    /** The key to store the statement under, checked like a parsed filename; invalid ones fail the statement. */
+    public StatementKey key() {
+        return StatementKeyParser.key(customerId, period);
+    }
+
+    /** Filename the statement is reported under, also when its key is invalid. */
+    public String filename() {
+        return StatementKey.of(customerId, period).filename();
+    }
+}
@@ -0,0 +1,201 @@
+package za.co.statements.render;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads statement data one statement at a time, so a batch is rendered while the rest of it is still being
+ * received and never held in full. Malformed input fails with an {@link IllegalArgumentException} naming
+ * the offending line or element; statements read before it have already been handed out.
+ */
+public final class StatementDataReader {
+
+    /** Column order of the CSV format; the header line must name them. */
+    static final List<String> CSV_COLUMNS =
+            List.of("customerId", "period", "customerName", "date", "description", "amount");
+
+    private StatementDataReader() {
+    }
+
+    /**
+     * A JSON array of {@link StatementData} objects, for example
+     * {@code [{"customerId":1,"period":"2024-01","customerName":"A","lines":[{"date":"2024-01-03",
+     * "description":"Salary","amount":1000.00}]}]}.
+     */
+    public static Iterator<StatementData> json(final ObjectMapper mapper, final InputStream input)
+            throws IOException {
+        MappingIterator<StatementData> statements;
+        try {
+            statements = mapper.readerFor(StatementData.class).readValues(input);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid statement JSON: " + e.getOriginalMessage(), e);
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return statements.hasNext();
+                } catch (RuntimeException e) {
+                    throw invalidJson(e);
+                }
+            }
+
+            @Override
+            public StatementData next() {
+                try {
+                    return statements.next();
+                } catch (RuntimeException e) {
+                    throw invalidJson(e);
+                }
+            }
+        };
+    }
+
+    private static RuntimeException invalidJson(final RuntimeException e) {
+        // MappingIterator wraps parse and binding errors in unchecked exceptions
+        if (e.getCause() instanceof JsonProcessingException json) {
+            return new IllegalArgumentException("Invalid statement JSON: " + json.getOriginalMessage(), e);
+        }
+        return e;
+    }
+
+    /**
+     * CSV with a header line and one transaction per line, in the columns of {@link #CSV_COLUMNS}. Consecutive
+     * lines with the same customer and period make up one statement, whose name is taken from its first line.
+     * Fields may be quoted, with {@code ""} for a quote inside them.
+     */
+    public static Iterator<StatementData> csv(final InputStream input) {
+        return new CsvStatements(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    }
+
+    private record CsvRow(long customerId, YearMonth period, String customerName, StatementLine line) {
+
+        boolean sameStatement(final CsvRow other) {
+            return customerId == other.customerId && period.equals(other.period);
+        }
+    }
+
+    private static final class CsvStatements implements Iterator<StatementData> {
+
+        private final BufferedReader reader;
+        private int lineNumber;
+        private CsvRow pending;
+
+        CsvStatements(final BufferedReader reader) {
+            this.reader = reader;
+            String header = readLine();
+            if (header == null || !split(header).stream().map(String::trim).toList().equals(CSV_COLUMNS)) {
+                throw new IllegalArgumentException("CSV header must be " + String.join(",", CSV_COLUMNS));
+            }
+            pending = readRow();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public StatementData next() {
+            if (pending == null) {
+                throw new NoSuchElementException();
+            }
+            CsvRow first = pending;
+            List<StatementLine> lines = new ArrayList<>();
+            CsvRow row = first;
+            while (row != null && row.sameStatement(first)) {
+                lines.add(row.line());
+                row = readRow();
+            }
+            pending = row;
+            return new StatementData(first.customerId(), first.period(), first.customerName(), lines);
+        }
+
+        private CsvRow readRow() {
+            String line;
+            do {
+                line = readLine();
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+
+            List<String> fields = split(line);
+            if (fields.size() != CSV_COLUMNS.size()) {
+                throw invalid("expected " + CSV_COLUMNS.size() + " fields, found " + fields.size());
+            }
+            try {
+                return new CsvRow(
+                        Long.parseLong(fields.get(0).trim()),
+                        YearMonth.parse(fields.get(1).trim()),
+                        fields.get(2),
+                        new StatementLine(LocalDate.parse(fields.get(3).trim()), fields.get(4),
+                                new BigDecimal(fields.get(5).trim())));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw invalid(e.getMessage());
+            }
+        }
+
+        private String readLine() {
+            try {
+                String line = reader.readLine();
+                lineNumber++;
+                return line;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<String> split(final String line) {
+            List<String> fields = new ArrayList<>(CSV_COLUMNS.size());
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw invalid("unterminated quoted field");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private IllegalArgumentException invalid(final String reason) {
+            return new IllegalArgumentException("Invalid statement CSV at line " + lineNumber + ": " + reason);
+        }
+    }
+}
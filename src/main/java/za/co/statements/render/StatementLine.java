@@ -0,0 +1,15 @@
+package za.co.statements.render;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** One transaction on a statement; credits are positive, debits negative. */
+public record StatementLine(LocalDate date, String description, BigDecimal amount) {
+
+    public StatementLine {
+        if (date == null || amount == null) {
+            throw new IllegalArgumentException("Statement line needs a date and an amount");
+        }
+        description = description == null ? "" : description;
+    }
+}
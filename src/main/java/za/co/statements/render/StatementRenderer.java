@@ -0,0 +1,167 @@
+package za.co.statements.render;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Renders {@link StatementData} to a PDF with OpenPDF. Everything that does not depend on the statement is
+ * built once and shared by all renders: the base fonts (standard Type 1 Helvetica, not embedded, so their
+ * metrics are parsed once rather than per document), the page layout and the date formats. These are only
+ * read while rendering, so one renderer serves any number of threads; each render has its own writer.
+ * <p>
+ * Statements have a fixed layout, so rows are drawn straight onto the page at precomputed positions instead
+ * of through {@code PdfPTable}, whose per-cell text layout allocated around 800 KB per one-page statement.
+ * Descriptions too wide for their column are shortened with an ellipsis.
+ */
+public class StatementRenderer {
+
+    private static final Rectangle PAGE = PageSize.A4;
+    private static final float MARGIN = 48;
+    private static final float TOP = PAGE.getHeight() - MARGIN;
+    private static final float BOTTOM = MARGIN;
+    private static final float ROW_HEIGHT = 14;
+    private static final float TOTALS_HEIGHT = 4 * ROW_HEIGHT;
+
+    private static final float DATE_X = MARGIN;
+    private static final float DESCRIPTION_X = DATE_X + 72;
+    private static final float AMOUNT_RIGHT = PAGE.getWidth() - MARGIN;
+    private static final float DESCRIPTION_WIDTH = AMOUNT_RIGHT - 96 - DESCRIPTION_X;
+
+    private static final float TITLE_SIZE = 16;
+    private static final float TEXT_SIZE = 9;
+    private static final String ELLIPSIS = "...";
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH);
+
+    /** Typical size of a one-page statement, so most renders never grow their buffer. */
+    private static final int INITIAL_BUFFER_BYTES = 4 * 1024;
+
+    private final BaseFont regular = baseFont(BaseFont.HELVETICA);
+    private final BaseFont bold = baseFont(BaseFont.HELVETICA_BOLD);
+
+    private static BaseFont baseFont(final String name) {
+        try {
+            return BaseFont.createFont(name, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load font " + name, e);
+        }
+    }
+
+    public byte[] render(final StatementData statement) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_BYTES);
+        Document document = new Document(PAGE, MARGIN, MARGIN, MARGIN, MARGIN);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.addTitle("Statement " + statement.key().filename());
+        document.open();
+        try {
+            PdfContentByte canvas = writer.getDirectContent();
+            float y = header(canvas, statement);
+
+            BigDecimal moneyIn = BigDecimal.ZERO;
+            BigDecimal moneyOut = BigDecimal.ZERO;
+            for (StatementLine line : statement.lines()) {
+                if (y < BOTTOM) {
+                    document.newPage();
+                    y = columnHeadings(canvas, TOP);
+                }
+                row(canvas, regular, DATE_FORMAT.format(line.date()), line.description(), amount(line.amount()), y);
+                y -= ROW_HEIGHT;
+                if (line.amount().signum() >= 0) {
+                    moneyIn = moneyIn.add(line.amount());
+                } else {
+                    moneyOut = moneyOut.add(line.amount());
+                }
+            }
+
+            if (y - TOTALS_HEIGHT < BOTTOM) {
+                document.newPage();
+                y = TOP;
+            }
+            rule(canvas, y + ROW_HEIGHT - 4);
+            y -= 4;
+            row(canvas, bold, "", "Money in", amount(moneyIn), y);
+            row(canvas, bold, "", "Money out", amount(moneyOut), y - ROW_HEIGHT);
+            row(canvas, bold, "", "Net movement", amount(moneyIn.add(moneyOut)), y - 2 * ROW_HEIGHT);
+        } finally {
+            document.close();
+        }
+        return out.toByteArray();
+    }
+
+    /** Draws the title block and the column headings, returning the baseline of the first row. */
+    private float header(final PdfContentByte canvas, final StatementData statement) {
+        float y = TOP - TITLE_SIZE;
+        canvas.beginText();
+        canvas.setFontAndSize(bold, TITLE_SIZE);
+        canvas.showTextAligned(Element.ALIGN_LEFT, "Account Statement", MARGIN, y, 0);
+        canvas.setFontAndSize(regular, TEXT_SIZE);
+        y -= 2 * ROW_HEIGHT;
+        canvas.showTextAligned(Element.ALIGN_LEFT, customer(statement), MARGIN, y, 0);
+        y -= ROW_HEIGHT;
+        canvas.showTextAligned(Element.ALIGN_LEFT, "Period: " + PERIOD_FORMAT.format(statement.period()),
+                MARGIN, y, 0);
+        canvas.endText();
+        return columnHeadings(canvas, y - 2 * ROW_HEIGHT);
+    }
+
+    private float columnHeadings(final PdfContentByte canvas, final float y) {
+        row(canvas, bold, "Date", "Description", "Amount", y);
+        rule(canvas, y - 4);
+        return y - ROW_HEIGHT - 4;
+    }
+
+    private void row(final PdfContentByte canvas, final BaseFont font, final String date, final String description,
+                     final String amount, final float y) {
+        canvas.beginText();
+        canvas.setFontAndSize(font, TEXT_SIZE);
+        canvas.showTextAligned(Element.ALIGN_LEFT, date, DATE_X, y, 0);
+        canvas.showTextAligned(Element.ALIGN_LEFT, fit(font, description), DESCRIPTION_X, y, 0);
+        canvas.showTextAligned(Element.ALIGN_RIGHT, amount, AMOUNT_RIGHT, y, 0);
+        canvas.endText();
+    }
+
+    private static void rule(final PdfContentByte canvas, final float y) {
+        canvas.setLineWidth(0.5f);
+        canvas.setGrayStroke(0.8f);
+        canvas.moveTo(MARGIN, y);
+        canvas.lineTo(AMOUNT_RIGHT, y);
+        canvas.stroke();
+    }
+
+    private static String fit(final BaseFont font, final String text) {
+        if (font.getWidthPoint(text, TEXT_SIZE) <= DESCRIPTION_WIDTH) {
+            return text;
+        }
+        float available = DESCRIPTION_WIDTH - font.getWidthPoint(ELLIPSIS, TEXT_SIZE);
+        int end = text.length();
+        while (end > 0 && font.getWidthPoint(text.substring(0, end), TEXT_SIZE) > available) {
+            end--;
+        }
+        return text.substring(0, end) + ELLIPSIS;
+    }
+
+    private static String customer(final StatementData statement) {
+        String name = statement.customerName();
+        return name == null || name.isBlank()
+                ? "Customer " + statement.customerId()
+                : "Customer: " + name + " (" + statement.customerId() + ")";
+    }
+
+    private static String amount(final BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+    }
+}
@@ -0,0 +1,167 @@
+package za.co.statements.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import za.co.statements.dto.response.BulkUploadEntryResult;
+import za.co.statements.dto.response.BulkUploadResponse;
+import za.co.statements.exception.InvalidStatementKeyException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementKeyParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Month-end bulk ingestion. The request thread reads entries one after another (a ZIP can only be read
+ * sequentially) and hands each to a bounded worker pool for storage, so reading the next entry overlaps
+ * with storing the previous ones. Once the in-flight byte budget is used up the reader blocks until
+ * workers release it, so at most the budget plus one entry is held no matter how large the archive is.
+ */
+@Service
+@Slf4j
+public class BulkIngestionService {
+
+    private final StatementService statementService;
+    private final ExecutorService workers;
+    private final Semaphore inFlightBytes;
+    private final int maxInFlightBytes;
+    private final int maxEntryBytes;
+
+    public BulkIngestionService(
+            final StatementService statementService,
+            @Value("${statement.bulk.workers:0}") final int workers,
+            @Value("${statement.bulk.max-in-flight:64MB}") final DataSize maxInFlight,
+            @Value("${statement.bulk.max-entry-size:25MB}") final DataSize maxEntrySize,
+            @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+
+        this.statementService = statementService;
+        this.maxInFlightBytes = Math.toIntExact(maxInFlight.toBytes());
+        this.maxEntryBytes = Math.toIntExact(maxEntrySize.toBytes());
+        this.inFlightBytes = new Semaphore(maxInFlightBytes);
+
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        // Virtual workers free their carrier while blocked in storage I/O; the pool size still caps concurrency
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("bulk-ingest-", 1).factory()
+                : namedThreads();
+        this.workers = Executors.newFixedThreadPool(poolSize, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public BulkUploadResponse ingestZip(final InputStream archive) throws IOException {
+        long started = System.nanoTime();
+        List<CompletableFuture<BulkUploadEntryResult>> results = new ArrayList<>();
+
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                results.add(submit(baseName(entry.getName()), zip));
+            }
+        }
+
+        return report(results, started);
+    }
+
+    public BulkUploadResponse ingestFiles(final List<MultipartFile> files) throws IOException {
+        long started = System.nanoTime();
+        List<CompletableFuture<BulkUploadEntryResult>> results = new ArrayList<>(files.size());
+
+        for (MultipartFile file : files) {
+            try (InputStream content = file.getInputStream()) {
+                results.add(submit(baseName(file.getOriginalFilename()), content));
+            }
+        }
+
+        return report(results, started);
+    }
+
+    private CompletableFuture<BulkUploadEntryResult> submit(final String filename, final InputStream content)
+            throws IOException {
+
+        StatementKey key;
+        try {
+            key = StatementKeyParser.parseFilename(filename);
+        } catch (InvalidStatementKeyException e) {
+            return CompletableFuture.completedFuture(BulkUploadEntryResult.rejected(filename, e.getMessage()));
+        }
+
+        byte[] pdf = content.readNBytes(maxEntryBytes + 1);
+        if (pdf.length > maxEntryBytes) {
+            return CompletableFuture.completedFuture(BulkUploadEntryResult.rejected(filename,
+                    "Entry exceeds maximum size of " + maxEntryBytes + " bytes"));
+        }
+        if (pdf.length == 0) {
+            return CompletableFuture.completedFuture(BulkUploadEntryResult.rejected(filename, "File is empty"));
+        }
+
+        // Backpressure: block the reader until workers have drained enough bytes
+        int permits = Math.min(pdf.length, maxInFlightBytes);
+        inFlightBytes.acquireUninterruptibly(permits);
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                statementService.storeStatement(key, pdf);
+                log.debug("Bulk stored {} as {}", filename, key);
+                return BulkUploadEntryResult.stored(filename, key.path());
+            } catch (RuntimeException e) {
+                log.warn("Bulk entry {} failed", filename, e);
+                return BulkUploadEntryResult.failed(filename, e.getMessage());
+            } finally {
+                inFlightBytes.release(permits);
+            }
+        }, workers);
+    }
+
+    private BulkUploadResponse report(final List<CompletableFuture<BulkUploadEntryResult>> results,
+                                      final long started) {
+        List<BulkUploadEntryResult> entries = results.stream().map(CompletableFuture::join).toList();
+
+        int stored = (int) entries.stream()
+                .filter(entry -> entry.status() == BulkUploadEntryResult.Status.STORED)
+                .count();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        log.info("Bulk ingestion finished: {} entries, {} stored, {} not stored in {} ms",
+                entries.size(), stored, entries.size() - stored, elapsedMillis);
+
+        return new BulkUploadResponse(entries.size(), stored, entries.size() - stored, elapsedMillis, entries);
+    }
+
+    private static String baseName(final String name) {
+        if (name == null) {
+            return "";
+        }
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        return name.substring(slash + 1);
+    }
+
+    private static ThreadFactory namedThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bulk-ingest-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package za.co.statements.service;
+
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+
+import java.util.List;
+
+/**
+ * The statements an export token resolved to, oldest first, with the size and CRC32 of each from the index.
+ * The size of the archive is known before anything is streamed, while the content is only opened entry by
+ * entry as it is written.
+ */
+public record StatementExport(StatementRange range, List<StoredMetadata> statements) {
+
+    public String filename() {
+        StatementKey first = new StatementKey(range.customerId(), range.fromPeriod());
+        StatementKey last = new StatementKey(range.customerId(), range.toPeriod());
+        return "statements_" + range.customerId() + "_" + first.yearMonth() + "_" + last.yearMonth() + ".zip";
+    }
+
+    /** Total size of the statements, which the STORED archive exceeds only by its headers. */
+    public long bytes() {
+        long bytes = 0;
+        for (StoredMetadata statement : statements) {
+            bytes += statement.size();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,148 @@
+package za.co.statements.service;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import za.co.statements.dto.response.DownloadLinkResponse;
+import za.co.statements.exception.StatementNotFoundException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementKeyParser;
+import za.co.statements.key.StatementRange;
+import za.co.statements.logging.LogSummary;
+import za.co.statements.logging.RedactedToken;
+import za.co.statements.token.DownloadTokenStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP export of a customer's statements over a period range, behind a single export token.
+ * <p>
+ * Entries are STORED rather than deflated: PDFs are compressed already, and storage keeps the size and
+ * CRC32 of every statement, so each entry header is written before its content. The content is then
+ * copied from the backend into the response through one fixed buffer. Nothing is staged, so an export
+ * holds the same memory whether it has one statement or a hundred.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementExportService {
+
+    private static final int MAX_MONTHS = 100;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final String EXPORT_PATH = "/api/public/export/";
+
+    private final StorageService storageService;
+    private final DownloadTokenStore tokenStore;
+
+    private final LogSummary exports = LogSummary.info(log, "Served {} exports in the last {} s");
+    private final LogSummary emptyRanges =
+            LogSummary.info(log, "Refused {} export links to empty ranges in the last {} s");
+    private final LogSummary rejected = LogSummary.warn(log, "Rejected {} export tokens in the last {} s");
+
+    @Value("${statement.token.ttl-seconds}")
+    private long tokenTtlSeconds;
+
+    /**
+     * Creates a link to a ZIP of every statement from {@code from} to {@code to}, both {@code yyyy-MM}, a range
+     * of at most {@value #MAX_MONTHS} months like a batch of download links.
+     */
+    @Timed(value = "statement.export-link", histogram = true)
+    public DownloadLinkResponse createExportLink(final Long customerId, final String from, final String to) {
+        int fromPeriod = StatementKeyParser.parsePeriod(from);
+        int toPeriod = StatementKeyParser.parsePeriod(to);
+        StatementRange range = new StatementRange(customerId, fromPeriod, toPeriod);
+        if (range.months() > MAX_MONTHS) {
+            throw new IllegalArgumentException("An export covers at most " + MAX_MONTHS + " months");
+        }
+
+        if (storageService.listBetween(customerId, fromPeriod, toPeriod).isEmpty()) {
+            log.debug("No statements found for customerId={} from {} to {}", customerId, from, to);
+            emptyRanges.record();
+            throw new StatementNotFoundException(
+                    "No statements found for customer " + customerId + " from " + from + " to " + to
+            );
+        }
+
+        String token = tokenStore.generateExportToken(range, Duration.ofSeconds(tokenTtlSeconds));
+        return new DownloadLinkResponse(EXPORT_PATH + token, tokenTtlSeconds);
+    }
+
+    /**
+     * Resolves an export token to the statements it covers and their sizes, without reading any content.
+     * Called before the response is committed, so an invalid token is still answered with an error status
+     * rather than a truncated archive.
+     */
+    public StatementExport openExport(final String token) {
+        StatementRange range = tokenStore.validateExportToken(token);
+        if (range == null) {
+            log.debug("Invalid or expired export token={}", RedactedToken.of(token));
+            rejected.record();
+            throw new IllegalArgumentException("Token invalid or expired");
+        }
+        List<StatementKey> keys = storageService.listBetween(range.customerId(), range.fromPeriod(), range.toPeriod());
+        List<StoredMetadata> statements = new ArrayList<>(keys.size());
+        for (StatementKey key : keys.reversed()) {
+            StoredMetadata statement = storageService.metadata(key);
+            if (statement != null) {
+                statements.add(statement);
+            }
+        }
+        return new StatementExport(range, statements);
+    }
+
+    /**
+     * Writes the export as a ZIP to {@code output}, one STORED entry per statement named as for a bulk upload,
+     * so the archive can be uploaded again as is. Each statement is opened only when its entry is written, so
+     * one is held at a time; those that disappeared since the export was opened are left out. {@code output}
+     * is finished but not closed.
+     */
+    @Timed(value = "statement.export", histogram = true)
+    public void writeZip(final StatementExport export, final OutputStream output) throws IOException {
+        long started = System.nanoTime();
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        int entries = 0;
+        long bytes = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(output);
+        for (StoredMetadata listed : export.statements()) {
+            StoredObject statement = storageService.open(listed.key());
+            if (statement == null) {
+                log.warn("Statement {} no longer available, left out of export", listed.key());
+                continue;
+            }
+
+            ZipEntry entry = new ZipEntry(statement.key().filename());
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(statement.size());
+            entry.setCompressedSize(statement.size());
+            entry.setCrc(Integer.toUnsignedLong(statement.crc()));
+
+            zip.putNextEntry(entry);
+            try (InputStream content = statement.content().getInputStream()) {
+                int read;
+                while ((read = content.read(buffer)) >= 0) {
+                    zip.write(buffer, 0, read);
+                }
+            }
+            zip.closeEntry();
+
+            entries++;
+            bytes += statement.size();
+        }
+        zip.finish();
+        zip.flush();
+
+        log.debug("Exported {} statements ({} bytes) for range={} in {} ms",
+                entries, bytes, export.range(), (System.nanoTime() - started) / 1_000_000);
+        exports.record();
+    }
+}
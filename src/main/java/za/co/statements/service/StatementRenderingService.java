@@ -0,0 +1,126 @@
+package za.co.statements.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import za.co.statements.dto.response.BulkUploadEntryResult;
+import za.co.statements.dto.response.RenderBatchResponse;
+import za.co.statements.render.StatementData;
+import za.co.statements.render.StatementDataReader;
+import za.co.statements.render.StatementRenderer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders statements from structured data and stores the PDFs, replacing render-elsewhere-then-upload.
+ * The request thread parses the batch one statement at a time and hands each to a work-stealing
+ * {@link ForkJoinPool} sized to the cores, so parsing overlaps with rendering and idle workers take queued
+ * documents from busy ones. At most {@code statement.render.max-in-flight} statements per batch are parsed but
+ * not yet stored; beyond that the reader waits, so a batch of any size holds a bounded amount of data.
+ * Rendered PDFs go straight into storage without a copy through the upload path.
+ */
+@Service
+@Slf4j
+public class StatementRenderingService {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final StatementService statementService;
+    private final ObjectMapper objectMapper;
+    private final StatementRenderer renderer = new StatementRenderer();
+    private final ForkJoinPool workers;
+    private final int maxInFlight;
+
+    public StatementRenderingService(
+            final StatementService statementService,
+            final ObjectMapper objectMapper,
+            @Value("${statement.render.parallelism:0}") final int parallelism,
+            @Value("${statement.render.max-in-flight:1024}") final int maxInFlight) {
+
+        this.statementService = statementService;
+        this.objectMapper = objectMapper;
+        this.maxInFlight = maxInFlight;
+
+        int poolSize = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // FIFO mode: tasks are submitted and never joined, so process them in arrival order
+        this.workers = new ForkJoinPool(poolSize, StatementRenderingService::namedWorker, null, true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    @Timed(value = "statement.render", histogram = true)
+    public RenderBatchResponse renderJson(final InputStream input) throws IOException {
+        return render(StatementDataReader.json(objectMapper, input));
+    }
+
+    @Timed(value = "statement.render", histogram = true)
+    public RenderBatchResponse renderCsv(final InputStream input) {
+        return render(StatementDataReader.csv(input));
+    }
+
+    public RenderBatchResponse render(final Iterator<StatementData> statements) {
+        long started = System.nanoTime();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Queue<BulkUploadEntryResult> failures = new ConcurrentLinkedQueue<>();
+
+        int total = 0;
+        try {
+            while (statements.hasNext()) {
+                StatementData statement = statements.next();
+                inFlight.acquireUninterruptibly();
+                total++;
+                try {
+                    workers.execute(() -> {
+                        try {
+                            statementService.storeStatement(statement.key(), renderer.render(statement));
+                            stored.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            if (failed.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+                                log.warn("Rendering {} failed", statement.filename(), e);
+                                failures.add(BulkUploadEntryResult.failed(statement.filename(), e.getMessage()));
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // Also on a parse error: statements already handed out are still rendered and stored
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Rendered {} statements, {} stored, {} failed in {} ms",
+                total, stored.get(), failed.get(), elapsedMillis);
+
+        return new RenderBatchResponse(total, stored.get(), failed.get(), elapsedMillis, new ArrayList<>(failures));
+    }
+
+    private static ForkJoinWorkerThread namedWorker(final ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("statement-render-" + thread.getPoolIndex());
+        return thread;
+    }
+}
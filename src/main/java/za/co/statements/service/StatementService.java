@@ -1,99 +1,231 @@
 package za.co.statements.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import za.co.statements.exception.StatementNotFoundException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementKeyParser;
+import za.co.statements.logging.LogSummary;
+import za.co.statements.logging.RedactedToken;
 import za.co.statements.token.DownloadTokenStore;
 import za.co.statements.dto.response.DownloadLinkResponse;
-import za.co.statements.dto.response.UploadResponse;
+import za.co.statements.dto.response.DownloadLinksResponse;
+import za.co.statements.dto.response.StatementDownloadLink;
+import za.co.statements.dto.response.StatementCursorResponse;
 import za.co.statements.dto.StatementMetadataDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 
 import java.time.YearMonth;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StatementService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_LINKS = 100;
+    private static final String DOWNLOAD_PATH = "/api/public/download/";
+
     private final StorageService storageService;
     private final DownloadTokenStore tokenStore;
 
+    private final LogSummary saves = LogSummary.info(log, "Saved {} statements in the last {} s");
+    private final LogSummary downloads = LogSummary.info(log, "Served {} downloads in the last {} s");
+
     @Value("${statement.token.ttl-seconds}")
     private long tokenTtlSeconds;
 
+    @Timed(value = "statement.save", histogram = true)
     public void saveStatement(final Long customerId, final YearMonth period, final byte[] pdfBytes) {
-        String path = buildPath(customerId, period);
-        log.info("Saving statement customerId={} period={} path={}", customerId, period, path);
-        storageService.upload(path, pdfBytes);
-        new UploadResponse("Statement uploaded", null);
+        StatementKey key = StatementKey.of(customerId, period);
+        log.debug("Saving statement customerId={} period={}", customerId, period);
+        storageService.upload(key, pdfBytes);
+        saves.record();
     }
 
+    @Timed(value = "statement.save", histogram = true)
+    public void saveStatement(final Long customerId, final YearMonth period, final InputStream pdf, final long size)
+            throws IOException {
+        StatementKey key = StatementKey.of(customerId, period);
+        log.debug("Saving statement customerId={} period={} size={}", customerId, period, size);
+        storageService.upload(key, pdf, size);
+        saves.record();
+    }
+
+    /** Stores a statement without per-call logging, for batch callers that report in aggregate. */
+    void storeStatement(final StatementKey key, final byte[] pdfBytes) {
+        storageService.upload(key, pdfBytes);
+    }
+
+    /** Creates a download link, failing with {@link StatementNotFoundException} when there is no statement. */
     public DownloadLinkResponse createDownloadLink(final Long customerId, final YearMonth period) {
+        return findDownloadLink(customerId, period).orElseThrow(() -> new StatementNotFoundException(
+                notFoundMessage(customerId, period)));
+    }
 
-        String path = buildPath(customerId, period);
+    /**
+     * Creates a download link, or returns empty when there is no statement. A miss is answered from the
+     * storage index and costs no exception, so probing for statements that do not exist stays cheap.
+     */
+    @Timed(value = "statement.download-link", histogram = true)
+    public Optional<DownloadLinkResponse> findDownloadLink(final Long customerId, final YearMonth period) {
 
-        boolean exists = storageService.exists(path);
+        StatementKey key = StatementKey.of(customerId, period);
 
-        if (!exists) {
-            log.warn("No statement found for customerId={} period={} and path={}",
-                    customerId, period, path);
-            throw new StatementNotFoundException(
-                    "Statement not found for customer " + customerId + " for period " + period
-            );
+        if (!storageService.exists(key)) {
+            log.debug("No statement found for customerId={} period={}", customerId, period);
+            return Optional.empty();
         }
 
-        String token = tokenStore.generateToken(path, Duration.ofSeconds(tokenTtlSeconds));
-        String url = "/api/public/download/" + token;
+        String token = tokenStore.generateToken(key, Duration.ofSeconds(tokenTtlSeconds));
+        String url = DOWNLOAD_PATH + token;
 
-        return new DownloadLinkResponse(url, tokenTtlSeconds);
+        return Optional.of(new DownloadLinkResponse(url, tokenTtlSeconds));
     }
 
-    public byte[] downloadViaToken(final String token) {
-        log.info("Attempting download via token={}", token);
-        String path = tokenStore.validateToken(token);
-        if (path == null) {
-            log.warn("Invalid or expired token={}", token);
-            throw new IllegalArgumentException("Token invalid or expired");
+    public static String notFoundMessage(final Long customerId, final YearMonth period) {
+        return "Statement not found for customer " + customerId + " for period " + period;
+    }
+
+    /**
+     * Creates links for several of a customer's statements at once: the listed {@code periods}, or every month
+     * from {@code from} to {@code to}, all {@code yyyy-MM}. The stored periods come from one index read over
+     * the requested span and the tokens are issued as one batch. Requested months without a statement are
+     * reported as missing rather than failing the request.
+     */
+    @Timed(value = "statement.download-links", histogram = true)
+    public DownloadLinksResponse createDownloadLinks(final Long customerId, final List<String> periods,
+                                                     final String from, final String to) {
+        int[] requested = requestedPeriods(periods, from, to);
+        List<StatementKey> stored = storageService.listBetween(customerId, requested[0],
+                requested[requested.length - 1]);
+
+        // Both sides are ordered newest first, so one merge pass separates found from missing
+        List<StatementKey> found = new ArrayList<>(requested.length);
+        List<YearMonth> missing = new ArrayList<>();
+        int next = 0;
+        for (int i = requested.length - 1; i >= 0; i--) {
+            while (next < stored.size() && stored.get(next).period() > requested[i]) {
+                next++;
+            }
+            if (next < stored.size() && stored.get(next).period() == requested[i]) {
+                found.add(stored.get(next));
+            } else {
+                missing.add(YearMonth.of(requested[i] / 100, requested[i] % 100));
+            }
+        }
+
+        List<String> tokens = tokenStore.generateTokens(found, Duration.ofSeconds(tokenTtlSeconds));
+        List<StatementDownloadLink> links = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            links.add(new StatementDownloadLink(found.get(i).yearMonth(), DOWNLOAD_PATH + tokens.get(i)));
         }
-        log.info("Token valid. Serving path={}", path);
-        return storageService.read(path);
+
+        log.debug("Created {} download links for customerId={}, {} periods missing",
+                links.size(), customerId, missing.size());
+        return new DownloadLinksResponse(customerId, tokenTtlSeconds, links, missing);
     }
 
-    private String buildPath(final Long customerId, final YearMonth period) {
-        return String.format("statements/%d/%s.pdf", customerId, period);
+    /** Parses the requested periods into sorted, distinct {@code yyyymm} values. */
+    private static int[] requestedPeriods(final List<String> periods, final String from, final String to) {
+        boolean listed = periods != null && !periods.isEmpty();
+        if (listed == (from != null || to != null)) {
+            throw new IllegalArgumentException("Pass either periods or from and to");
+        }
+        if (listed) {
+            if (periods.size() > MAX_LINKS) {
+                throw new IllegalArgumentException("At most " + MAX_LINKS + " periods per request");
+            }
+            return periods.stream().mapToInt(StatementKeyParser::parsePeriod).sorted().distinct().toArray();
+        }
+
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Pass both from and to");
+        }
+        int first = monthIndex(StatementKeyParser.parsePeriod(from));
+        int months = monthIndex(StatementKeyParser.parsePeriod(to)) - first + 1;
+        if (months < 1 || months > MAX_LINKS) {
+            throw new IllegalArgumentException("from must not be after to, and the range at most "
+                    + MAX_LINKS + " months");
+        }
+        int[] range = new int[months];
+        for (int i = 0; i < months; i++) {
+            int month = first + i;
+            range[i] = month / 12 * 100 + month % 12 + 1;
+        }
+        return range;
+    }
+
+    private static int monthIndex(final int period) {
+        return period / 100 * 12 + period % 100 - 1;
     }
 
+    @Timed(value = "statement.download", histogram = true)
+    public StoredObject downloadViaToken(final String token) {
+        StatementKey key = tokenStore.validateToken(token);
+        if (key == null) {
+            // Counted and summarised by the token store
+            log.debug("Invalid or expired token={}", RedactedToken.of(token));
+            throw new IllegalArgumentException("Token invalid or expired");
+        }
+        log.debug("Token valid. Serving key={}", key);
+        StoredObject statement = storageService.open(key);
+        if (statement == null) {
+            throw new StatementNotFoundException("Statement no longer available");
+        }
+        downloads.record();
+        return statement;
+    }
+
+    @Timed(value = "statement.list", histogram = true)
     public Page<StatementMetadataDto> listStatements(final Long customerId, final Pageable pageable) {
-        List<String> allPaths = storageService.list("statements/" + customerId + "/");
-        List<StatementMetadataDto> entries = allPaths.stream()
+        // The index keeps each customer's periods sorted, so newest-first is a descending walk
+        List<StatementMetadataDto> pageContent = storageService
+                .listDescending(customerId, pageable.getOffset(), pageable.getPageSize())
+                .stream()
                 .map(this::toMetadata)
-                .sorted(Comparator.comparing(StatementMetadataDto::period).reversed())
                 .toList();
 
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), entries.size());
-        List<StatementMetadataDto> pageContent = (start <= end ? entries.subList(start, end) : List.of());
-        return new PageImpl<>(pageContent, pageable, entries.size());
+        return new PageImpl<>(pageContent, pageable, storageService.count(customerId));
     }
 
-    private StatementMetadataDto toMetadata(final String path) {
-        String[] parts = path.split("/");
-        Long customerId = Long.valueOf(parts[1]);
-        String periodString = parts[2].replace(".pdf", "");
-        YearMonth ym = YearMonth.parse(periodString);
-        return new StatementMetadataDto(customerId, ym, path);
-    }
-}
-
+    /**
+     * Cursor-paged listing, newest first. {@code after} is the {@code yyyy-MM} cursor returned with the previous
+     * page, or {@code null} for the first page. Each page is read straight from the period-ordered index and
+     * no total is counted, so a page costs O(limit) however long the customer's history is.
+     */
+    @Timed(value = "statement.list-cursor", histogram = true)
+    public StatementCursorResponse listStatements(final Long customerId, final String after, final int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        int before = after == null ? Integer.MAX_VALUE : StatementKeyParser.parsePeriod(after);
 
+        // One extra entry tells whether there is a next page
+        List<StatementKey> keys = storageService.listBefore(customerId, before, limit + 1);
+        List<StatementMetadataDto> statements = keys.stream()
+                .limit(limit)
+                .map(this::toMetadata)
+                .toList();
 
+        String nextCursor = keys.size() > limit ? statements.get(limit - 1).period().toString() : null;
+        return new StatementCursorResponse(statements, nextCursor);
+    }
 
+    // The storage path is only rendered here, for the API response
+    private StatementMetadataDto toMetadata(final StatementKey key) {
+        return new StatementMetadataDto(key.customerId(), key.yearMonth(), key.path());
+    }
+}
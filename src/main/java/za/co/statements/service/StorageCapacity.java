@@ -0,0 +1,24 @@
+package za.co.statements.service;
+
+import java.util.List;
+
+/**
+ * Capacity accounting of an in-memory backend, split by shard where the backend is sharded.
+ *
+ * @param maxBytes        limit on {@code residentBytes} across all shards
+ * @param maxShardBytes   limit on the resident bytes of each shard, {@link Long#MAX_VALUE} if only the total is limited
+ * @param residentBytes   bytes held for statement content, charged to every statement that holds it
+ * @param rejectedUploads uploads refused so far because a limit would have been exceeded
+ * @param shards          per-shard accounting, indexed by shard
+ */
+public record StorageCapacity(long maxBytes, long maxShardBytes, long residentBytes, long rejectedUploads,
+                              List<Shard> shards) {
+
+    /**
+     * @param shard         index of the shard; a customer's statements all live in one shard
+     * @param statements    number of statements held by the shard
+     * @param logicalBytes  size of those statements as uploaded
+     * @param residentBytes bytes held for their content, after compression
+     */
+    public record Shard(int shard, long statements, long logicalBytes, long residentBytes) {}
+}
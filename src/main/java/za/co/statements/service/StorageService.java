@@ -1,33 +1,78 @@
 package za.co.statements.service;
 
-import org.springframework.stereotype.Service;
+import za.co.statements.key.StatementKey;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
-@Service
-public class StorageService {
+/**
+ * Blob storage for statement PDFs keyed by {@link StatementKey}.
+ * The backend is selected with {@code storage.backend}, see {@link za.co.statements.config.StorageConfig}.
+ */
+public interface StorageService {
 
-    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
-
-    public void upload(final String path, final byte[] content) {
-        store.put(path, content);
+    default void upload(final StatementKey key, final byte[] content) {
+        try {
+            upload(key, new ByteArrayInputStream(content), content.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    public byte[] read(final String path) {
-        return store.get(path);
-    }
+    /**
+     * Stores exactly {@code size} bytes read from {@code content}. The statement only becomes visible
+     * once it has been stored completely; if reading or writing fails nothing is stored.
+     */
+    void upload(StatementKey key, InputStream content, long size) throws IOException;
 
-    public boolean exists(final String path) {
-        return store.containsKey(path);
-    }
+    byte[] read(StatementKey key);
 
-    public List<String> list(final String prefix) {
-        return store.keySet().stream()
-                .filter(key -> key.startsWith(prefix))
-                .toList();
-    }
-}
+    /**
+     * Opens a statement for streaming without copying its content onto the heap.
+     * Returns {@code null} when nothing is stored under {@code key}.
+     */
+    StoredObject open(StatementKey key);
+
+    /**
+     * Returns the size and CRC32 of a statement without touching its content, or {@code null} when nothing
+     * is stored under {@code key}.
+     */
+    StoredMetadata metadata(StatementKey key);
+
+    /** Answered from the index, so checking for a statement that is not there never touches its storage. */
+    boolean exists(StatementKey key);
 
+    /** Lists a customer's statements in ascending period order, served from the index. */
+    List<StatementKey> list(long customerId);
 
+    /**
+     * Returns up to {@code limit} of a customer's statements, newest period first, skipping the first
+     * {@code offset}. Cost is proportional to {@code limit}, not to the size of the store.
+     */
+    List<StatementKey> listDescending(long customerId, long offset, int limit);
+
+    /**
+     * Returns up to {@code limit} of a customer's statements with a period before {@code beforePeriod}
+     * ({@code yyyymm}), newest first. The start is found by binary search, so the cost is O(log n + limit)
+     * however far back the page is.
+     */
+    List<StatementKey> listBefore(long customerId, int beforePeriod, int limit);
+
+    /**
+     * Returns a customer's statements with a period from {@code fromPeriod} to {@code toPeriod} inclusive
+     * ({@code yyyymm}), newest first, in one read of the index.
+     */
+    List<StatementKey> listBetween(long customerId, int fromPeriod, int toPeriod);
+
+    int count(long customerId);
+
+    StorageStats stats();
+
+    /** Capacity accounting, or {@code null} if the backend does not hold statements in memory. */
+    default StorageCapacity capacity() {
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package za.co.statements.service;
+
+/**
+ * Size accounting of a storage backend.
+ *
+ * @param backend      the {@code storage.backend} in use
+ * @param statements   number of stored paths
+ * @param logicalBytes sum of the sizes of all stored statements, as uploaded
+ * @param uniqueBlobs  number of distinct contents held
+ * @param uniqueBytes  uncompressed size of the distinct contents
+ * @param storedBytes  bytes actually held for the contents, after compression
+ */
+public record StorageStats(String backend, long statements, long logicalBytes, long uniqueBlobs,
+                           long uniqueBytes, long storedBytes) {}
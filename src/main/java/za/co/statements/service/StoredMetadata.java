@@ -0,0 +1,10 @@
+package za.co.statements.service;
+
+import za.co.statements.key.StatementKey;
+
+/**
+ * Size and CRC32 of a stored statement, as kept in the backend's index. Looking them up never reads or
+ * inflates the content, so they can be gathered for many statements at once.
+ */
+public record StoredMetadata(StatementKey key, long size, int crc) {
+}
@@ -0,0 +1,17 @@
+package za.co.statements.service;
+
+import org.springframework.core.io.Resource;
+import za.co.statements.key.StatementKey;
+
+/**
+ * A stored statement ready to be streamed. {@code content} is a view over whatever the backend holds
+ * (a heap array, a mapped segment slice or a file region) and reports its length without reading it.
+ * {@code crc} is the CRC32 of the content, which every backend already keeps, so the ETag and ZIP entry
+ * headers can be written before the content is read.
+ */
+public record StoredObject(StatementKey key, long size, int crc, Resource content) {
+
+    public String etag() {
+        return "\"" + Integer.toHexString(crc) + "-" + Long.toHexString(size) + "\"";
+    }
+}
@@ -0,0 +1,85 @@
+package za.co.statements.storage;
+
+import org.springframework.core.io.AbstractResource;
+import za.co.statements.key.StatementKey;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Resource over a {@link ByteBuffer} slice, e.g. part of a mapped segment. Every stream gets its own
+ * duplicate, so concurrent and ranged reads never copy or share position state.
+ */
+class ByteBufferResource extends AbstractResource {
+
+    private final ByteBuffer buffer;
+    private final StatementKey key;
+
+    ByteBufferResource(final ByteBuffer buffer, final StatementKey key) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.key = key;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() {
+        return Channels.newChannel(getInputStream());
+    }
+
+    @Override
+    public String getDescription() {
+        return key.path();
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] target, final int offset, final int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
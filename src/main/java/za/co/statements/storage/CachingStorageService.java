@@ -0,0 +1,202 @@
+package za.co.statements.storage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.io.ByteArrayResource;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Byte-budgeted read cache in front of a disk-backed {@link StorageService}. Entries are weighed by their
+ * content size and evicted by Caffeine's W-TinyLFU policy, which admits a new statement only if it is
+ * requested more often than the one it would displace, so a scan of cold statements cannot flush the
+ * hot ones.
+ * <p>
+ * Downloads ({@link #open}) and reads populate the cache. Loads run on the {@code loader} executor and the
+ * cache only holds their futures, so no map lock is held while the backend reads from disk and a virtual
+ * thread waiting for a load parks rather than pinning its carrier. Callers of one key share its load.
+ * <p>
+ * Uploads invalidate the key once the backend has stored the new content; a load of the old content still
+ * in flight is dropped with its entry, so a stale copy is never left behind. With pre-warming enabled,
+ * statements of the newest period seen so far are loaded in the background right after they are stored,
+ * as they get most of the downloads after a run; the upload does not wait for them.
+ */
+public class CachingStorageService implements StorageService, Closeable {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final StorageService delegate;
+    private final AsyncCache<StatementKey, CachedStatement> cache;
+    private final boolean prewarmNewestPeriod;
+
+    // Highest yyyymm period seen in an upload
+    private volatile int newestPeriod;
+
+    private record CachedStatement(byte[] content, int crc) {}
+
+    /**
+     * @param loader runs the backend reads that fill the cache, off the calling thread
+     */
+    public CachingStorageService(final StorageService delegate, final long maxBytes,
+                                 final boolean prewarmNewestPeriod, final Executor loader) {
+        this.delegate = delegate;
+        this.prewarmNewestPeriod = prewarmNewestPeriod;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((StatementKey key, CachedStatement statement) ->
+                        statement.content().length + ENTRY_OVERHEAD_BYTES)
+                .executor(loader)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /** A synchronous view of the cache, for metrics; loads still in flight are not part of it. */
+    public Cache<StatementKey, ?> cache() {
+        return cache.synchronous();
+    }
+
+    @Override
+    public void upload(final StatementKey key, final byte[] content) {
+        delegate.upload(key, content);
+        stored(key);
+    }
+
+    @Override
+    public void upload(final StatementKey key, final InputStream content, final long size) throws IOException {
+        delegate.upload(key, content, size);
+        stored(key);
+    }
+
+    private void stored(final StatementKey key) {
+        cache.synchronous().invalidate(key);
+
+        if (prewarmNewestPeriod && isNewestPeriod(key.period())) {
+            cache.get(key, this::loadAsync);
+        }
+    }
+
+    private boolean isNewestPeriod(final int period) {
+        int newest = newestPeriod;
+        if (period > newest) {
+            newestPeriod = period;
+            return true;
+        }
+        return period == newest;
+    }
+
+    @Override
+    public byte[] read(final StatementKey key) {
+        CachedStatement statement = get(key);
+        return statement == null ? null : statement.content();
+    }
+
+    @Override
+    public StoredObject open(final StatementKey key) {
+        CachedStatement statement = get(key);
+        if (statement == null) {
+            return null;
+        }
+        byte[] content = statement.content();
+        return new StoredObject(key, content.length, statement.crc(), new ByteArrayResource(content));
+    }
+
+    /** Answered by the backend, so gathering metadata neither loads content nor disturbs the cache. */
+    @Override
+    public StoredMetadata metadata(final StatementKey key) {
+        return delegate.metadata(key);
+    }
+
+    /** Waits for the key's load, started by this call or already in flight, and rethrows what it failed with. */
+    private CachedStatement get(final StatementKey key) {
+        try {
+            return cache.get(key, this::loadAsync).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<CachedStatement> loadAsync(final StatementKey key, final Executor loader) {
+        return CompletableFuture.supplyAsync(() -> load(key), loader);
+    }
+
+    private CachedStatement load(final StatementKey key) {
+        byte[] content = delegate.read(key);
+        if (content == null) {
+            return null;
+        }
+        // Same checksum the backend keeps, computed from the bytes actually cached
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        return new CachedStatement(content, (int) crc32.getValue());
+    }
+
+    @Override
+    public boolean exists(final StatementKey key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public List<StatementKey> list(final long customerId) {
+        return delegate.list(customerId);
+    }
+
+    @Override
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        return delegate.listDescending(customerId, offset, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        return delegate.listBefore(customerId, beforePeriod, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        return delegate.listBetween(customerId, fromPeriod, toPeriod);
+    }
+
+    @Override
+    public int count(final long customerId) {
+        return delegate.count(customerId);
+    }
+
+    @Override
+    public StorageStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public StorageCapacity capacity() {
+        return delegate.capacity();
+    }
+
+    /** Weight of the cached entries in bytes. */
+    public long cachedBytes() {
+        return cache.synchronous().policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.synchronous().invalidateAll();
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package za.co.statements.storage;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed blob pool: identical content is held once, keyed by its SHA-256, and shared by every
+ * path that stores it. Blobs are reference counted; a blob is dropped when the last path pointing at it
+ * is overwritten. Reference counts only change inside {@link ConcurrentHashMap#compute} for the blob's
+ * hash, so retain and release of the same content are serialised without a global lock.
+ * <p>
+ * With compression enabled a new blob is deflated once and kept compressed if that saves at least
+ * an eighth of its size. PDFs are largely compressed already, so many blobs stay raw.
+ */
+final class ContentBlobs {
+
+    private static final int MIN_SAVINGS_DIVISOR = 8;
+
+    private final Map<Hash, Blob> blobs = new ConcurrentHashMap<>();
+    private final boolean compress;
+
+    private final AtomicLong uniqueBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    record Hash(long a, long b, long c, long d) {
+
+        static Hash of(final byte[] content) {
+            try {
+                ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(content));
+                return new Hash(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    static final class Blob {
+
+        private final Hash hash;
+        private final byte[] data;
+        private final int length;
+        private final int crc;
+        private final boolean compressed;
+        private int references = 1;
+
+        private Blob(final Hash hash, final byte[] data, final int length, final int crc, final boolean compressed) {
+            this.hash = hash;
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.compressed = compressed;
+        }
+
+        int length() {
+            return length;
+        }
+
+        int crc() {
+            return crc;
+        }
+
+        /** Bytes held for the content, after compression. */
+        int storedLength() {
+            return data.length;
+        }
+
+        /** The original content; inflated into a fresh array if the blob is held compressed. */
+        byte[] content() {
+            if (!compressed) {
+                return data;
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data);
+                byte[] content = new byte[length];
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    inflated += inflater.inflate(content, inflated, length - inflated);
+                }
+                return content;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt compressed blob " + hash, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    ContentBlobs(final boolean compress) {
+        this.compress = compress;
+    }
+
+    /** Returns the blob holding {@code content}, creating it or adding a reference to an existing one. */
+    Blob retain(final byte[] content) {
+        Hash hash = Hash.of(content);
+        Blob existing = blobs.computeIfPresent(hash, (key, blob) -> {
+            blob.references++;
+            return blob;
+        });
+        if (existing != null) {
+            return existing;
+        }
+
+        // Build outside the map lock; if another upload of the same content wins the race, ours is discarded
+        Blob created = create(hash, content);
+        Blob blob = blobs.compute(hash, (key, current) -> {
+            if (current == null) {
+                return created;
+            }
+            current.references++;
+            return current;
+        });
+        if (blob == created) {
+            uniqueBytes.addAndGet(created.length);
+            storedBytes.addAndGet(created.data.length);
+        }
+        return blob;
+    }
+
+    void release(final Blob blob) {
+        blobs.computeIfPresent(blob.hash, (key, current) -> {
+            if (--current.references > 0) {
+                return current;
+            }
+            uniqueBytes.addAndGet(-current.length);
+            storedBytes.addAndGet(-current.data.length);
+            return null;
+        });
+    }
+
+    int count() {
+        return blobs.size();
+    }
+
+    /** Uncompressed size of all distinct blobs. */
+    long uniqueBytes() {
+        return uniqueBytes.get();
+    }
+
+    /** Bytes actually held for all distinct blobs, after compression. */
+    long storedBytes() {
+        return storedBytes.get();
+    }
+
+    private Blob create(final Hash hash, final byte[] content) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        int crc = (int) crc32.getValue();
+
+        byte[] deflated = compress ? deflate(content) : null;
+        return deflated != null
+                ? new Blob(hash, deflated, content.length, crc, true)
+                : new Blob(hash, content, content.length, crc, false);
+    }
+
+    /** Deflates into a buffer capped at the worthwhile size; returns {@code null} if it does not fit. */
+    private static byte[] deflate(final byte[] content) {
+        int limit = content.length - content.length / MIN_SAVINGS_DIVISOR;
+        if (limit <= 0) {
+            return null;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] buffer = new byte[limit];
+            int written = 0;
+            while (!deflater.finished() && written < limit) {
+                written += deflater.deflate(buffer, written, limit - written);
+            }
+            return deflater.finished() ? Arrays.copyOf(buffer, written) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+}
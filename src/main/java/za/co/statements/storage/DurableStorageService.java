@@ -0,0 +1,165 @@
+package za.co.statements.storage;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Makes the {@link InMemoryStorageService} survive restarts ({@code storage.wal.enabled}). Every upload is
+ * written to a {@link WriteAheadLog} under {@code storage.base-path} before it is stored on heap, and the
+ * heap store is rebuilt from the latest snapshot and the log tail on startup. Reads never touch the log.
+ * <p>
+ * A record is the key ({@code customerId}, {@code yyyymm}) followed by the content, partitioned by key so
+ * uploads of different statements are replayed in parallel. Snapshots hold each statement's content once
+ * per key; identical statements are deduplicated again on heap as they are replayed.
+ * <p>
+ * Capacity is reserved before an upload is logged and handed to the heap store when it is applied, or given back
+ * if logging fails, so uploads racing near a limit refuse each other rather than overshoot it. Replay does not
+ * check the limits, so a restart with lower limits still restores everything that was logged.
+ */
+public class DurableStorageService implements StorageService, Closeable {
+
+    private static final int KEY_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final InMemoryStorageService delegate;
+    private final WriteAheadLog wal;
+
+    public DurableStorageService(final InMemoryStorageService delegate, final Path directory, final boolean fsync,
+                                 final int recoveryThreads) {
+        this.delegate = delegate;
+        this.wal = WriteAheadLog.open(directory, fsync, recoveryThreads, this::replay);
+    }
+
+    @Override
+    public void upload(final StatementKey key, final byte[] content) {
+        try {
+            log(key, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to log upload of " + key, e);
+        }
+    }
+
+    @Override
+    public void upload(final StatementKey key, final InputStream content, final long size) throws IOException {
+        log(key, InMemoryStorageService.readExactly(content, size));
+    }
+
+    private void log(final StatementKey key, final byte[] content) throws IOException {
+        long reserved = delegate.reserve(key, content.length);
+        try {
+            wal.append(key.hashCode(), () -> delegate.put(key, content, reserved), encodeKey(key),
+                    ByteBuffer.wrap(content));
+        } catch (IOException e) {
+            // The log applies a record last, so a failed append never stored it
+            delegate.release(key, reserved);
+            throw e;
+        }
+    }
+
+    /** Compacts the log into a snapshot of the current statements. */
+    @Scheduled(fixedDelayString = "${storage.wal.checkpoint-interval:PT10M}",
+            initialDelayString = "${storage.wal.checkpoint-interval:PT10M}")
+    public void checkpoint() throws IOException {
+        wal.checkpoint(snapshot -> {
+            try {
+                delegate.forEach((key, content) -> {
+                    try {
+                        snapshot.write(key.hashCode(), encodeKey(key), ByteBuffer.wrap(content));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private void replay(final ByteBuffer record) {
+        StatementKey key = new StatementKey(record.getLong(0), record.getInt(Long.BYTES));
+        byte[] content = new byte[record.remaining() - KEY_BYTES];
+        record.get(KEY_BYTES, content);
+        delegate.put(key, content);
+    }
+
+    private static ByteBuffer encodeKey(final StatementKey key) {
+        return ByteBuffer.allocate(KEY_BYTES).putLong(key.customerId()).putInt(key.period()).flip();
+    }
+
+    @Override
+    public byte[] read(final StatementKey key) {
+        return delegate.read(key);
+    }
+
+    @Override
+    public StoredObject open(final StatementKey key) {
+        return delegate.open(key);
+    }
+
+    @Override
+    public StoredMetadata metadata(final StatementKey key) {
+        return delegate.metadata(key);
+    }
+
+    @Override
+    public boolean exists(final StatementKey key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public List<StatementKey> list(final long customerId) {
+        return delegate.list(customerId);
+    }
+
+    @Override
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        return delegate.listDescending(customerId, offset, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        return delegate.listBefore(customerId, beforePeriod, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        return delegate.listBetween(customerId, fromPeriod, toPeriod);
+    }
+
+    @Override
+    public int count(final long customerId) {
+        return delegate.count(customerId);
+    }
+
+    @Override
+    public StorageStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public StorageCapacity capacity() {
+        return delegate.capacity();
+    }
+
+    /** Number of log forces so far, for comparing against the number of uploads. */
+    public long syncCount() {
+        return wal.syncCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        wal.close();
+    }
+}
@@ -0,0 +1,86 @@
+package za.co.statements.storage;
+
+import org.springframework.core.io.AbstractResource;
+import za.co.statements.key.StatementKey;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Resource over a region of a shared {@link FileChannel}. Reads are positional, so the channel
+ * position is never touched and any number of downloads can stream the same segment concurrently.
+ */
+class FileRegionResource extends AbstractResource {
+
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    private final StatementKey key;
+
+    FileRegionResource(final FileChannel channel, final long offset, final long length, final StatementKey key) {
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+        this.key = key;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new RegionInputStream();
+    }
+
+    @Override
+    public String getDescription() {
+        return key.path();
+    }
+
+    private final class RegionInputStream extends InputStream {
+
+        private long position = offset;
+        private final long end = offset + length;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] target, final int off, final int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int count = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(target, off, count), position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + getDescription() + " at " + position);
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) {
+            long count = Math.max(0, Math.min(n, end - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
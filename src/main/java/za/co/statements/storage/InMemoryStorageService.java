@@ -0,0 +1,283 @@
+package za.co.statements.storage;
+
+import org.springframework.core.io.ByteArrayResource;
+import za.co.statements.exception.StorageCapacityExceededException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+import za.co.statements.storage.ContentBlobs.Blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Heap-backed storage. Fast and dependency free, but bounded by heap size and lost on restart.
+ * <p>
+ * Keys point at content-addressed {@link ContentBlobs}, so re-uploads of identical statements share
+ * one copy, optionally deflated ({@code storage.memory.compress}).
+ * <p>
+ * Statements are split into {@code storage.memory.shards} shards by customer id, each with its own map,
+ * period index and byte counts, so concurrent uploads contend on and resize smaller tables. Every shard
+ * tracks the bytes held for its statements, and uploads that would take a shard past
+ * {@code storage.memory.max-shard-size} or all shards past {@code storage.memory.max-size} are refused
+ * with a {@link StorageCapacityExceededException} before anything is replaced. Content shared through
+ * deduplication is charged to every statement holding it, so the limits err on the safe side.
+ */
+public class InMemoryStorageService implements StorageService {
+
+    static final int DEFAULT_SHARDS = 16;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final ContentBlobs blobs;
+    private final long maxBytes;
+    private final long maxShardBytes;
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final LongAdder rejectedUploads = new LongAdder();
+
+    private static final class Shard {
+
+        private final Map<StatementKey, Blob> store = new ConcurrentHashMap<>();
+        private final StatementIndex index = new StatementIndex();
+        private final AtomicLong logicalBytes = new AtomicLong();
+        private final AtomicLong residentBytes = new AtomicLong();
+    }
+
+    public InMemoryStorageService() {
+        this(false);
+    }
+
+    public InMemoryStorageService(final boolean compress) {
+        this(compress, DEFAULT_SHARDS, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param shards        number of shards, rounded up to a power of two
+     * @param maxBytes      limit on the bytes held across all shards
+     * @param maxShardBytes limit on the bytes held by any one shard
+     */
+    public InMemoryStorageService(final boolean compress, final int shards, final long maxBytes,
+                                  final long maxShardBytes) {
+        if (shards < 1 || shards > 1 << 16) {
+            throw new IllegalArgumentException("Shard count must be between 1 and 65536, was " + shards);
+        }
+        this.blobs = new ContentBlobs(compress);
+        this.shards = new Shard[shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.shardMask = this.shards.length - 1;
+        this.maxBytes = maxBytes;
+        this.maxShardBytes = maxShardBytes;
+    }
+
+    @Override
+    public void upload(final StatementKey key, final byte[] content) {
+        store(key, content, true, 0);
+    }
+
+    @Override
+    public void upload(final StatementKey key, final InputStream content, final long size) throws IOException {
+        upload(key, readExactly(content, size));
+    }
+
+    /** Stores content replayed on recovery. The limits are not checked, only charged. */
+    void put(final StatementKey key, final byte[] content) {
+        store(key, content, false, 0);
+    }
+
+    /**
+     * Stores an upload admitted through {@link #reserve}, taking over its reservation of {@code reserved} bytes.
+     * The limits are not checked again; only what the statement actually takes beyond the reservation is charged,
+     * or what it takes less given back.
+     */
+    void put(final StatementKey key, final byte[] content, final long reserved) {
+        store(key, content, false, reserved);
+    }
+
+    /**
+     * Reserves room for {@code size} bytes under {@code key}, or fails if that would exceed a limit. For callers
+     * that must decide before the upload becomes durable: the reservation is passed on to {@link #put} once the
+     * upload is logged, or given back with {@link #release} if it is not. The raw size is reserved, as
+     * compression is not known yet. Returns the bytes reserved.
+     */
+    long reserve(final StatementKey key, final long size) {
+        Shard shard = shard(key);
+        Blob previous = shard.store.get(key);
+        long delta = size - (previous == null ? 0 : previous.storedLength());
+        if (delta <= 0) {
+            return 0;
+        }
+        charge(shard, key, delta, true);
+        return delta;
+    }
+
+    void release(final StatementKey key, final long reserved) {
+        Shard shard = shard(key);
+        shard.residentBytes.addAndGet(-reserved);
+        residentBytes.addAndGet(-reserved);
+    }
+
+    private void store(final StatementKey key, final byte[] content, final boolean enforce, final long reserved) {
+        Shard shard = shard(key);
+        Blob blob = blobs.retain(content);
+
+        // Charged inside compute, so an overwrite is only charged the difference to the statement it replaces
+        Blob[] replaced = new Blob[1];
+        try {
+            shard.store.compute(key, (ignored, previous) -> {
+                long delta = blob.storedLength() - (previous == null ? 0 : previous.storedLength());
+                charge(shard, key, delta - reserved, enforce);
+                replaced[0] = previous;
+                return blob;
+            });
+        } catch (StorageCapacityExceededException e) {
+            blobs.release(blob);
+            throw e;
+        }
+        shard.index.add(key);
+
+        Blob previous = replaced[0];
+        shard.logicalBytes.addAndGet(blob.length() - (previous == null ? 0 : previous.length()));
+        if (previous != null) {
+            blobs.release(previous);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the shard and the total, and takes it back if either limit is now exceeded. Uploads
+     * racing near a limit may refuse each other, but the limits are never overshot.
+     */
+    private void charge(final Shard shard, final StatementKey key, final long delta, final boolean enforce) {
+        long shardBytes = shard.residentBytes.addAndGet(delta);
+        long totalBytes = residentBytes.addAndGet(delta);
+        if (enforce && delta > 0 && (shardBytes > maxShardBytes || totalBytes > maxBytes)) {
+            shard.residentBytes.addAndGet(-delta);
+            residentBytes.addAndGet(-delta);
+            throw rejected(key, delta);
+        }
+    }
+
+    private StorageCapacityExceededException rejected(final StatementKey key, final long bytes) {
+        rejectedUploads.increment();
+        return new StorageCapacityExceededException("Storage is full, cannot store " + bytes + " more bytes for "
+                + key.path() + " (limit " + maxBytes + " bytes, " + maxShardBytes + " per shard)");
+    }
+
+    /** Reads exactly {@code size} bytes; the heap copy is the stored statement itself, so it is right-sized. */
+    static byte[] readExactly(final InputStream content, final long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Statement too large to hold in memory: " + size + " bytes");
+        }
+
+        byte[] bytes = new byte[(int) size];
+        int read = content.readNBytes(bytes, 0, bytes.length);
+        if (read < bytes.length) {
+            throw new IOException("Upload ended after " + read + " of " + size + " bytes");
+        }
+        if (content.read() >= 0) {
+            throw new IOException("Upload is larger than the announced " + size + " bytes");
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] read(final StatementKey key) {
+        Blob blob = shard(key).store.get(key);
+        return blob == null ? null : blob.content();
+    }
+
+    @Override
+    public StoredObject open(final StatementKey key) {
+        Blob blob = shard(key).store.get(key);
+        if (blob == null) {
+            return null;
+        }
+        return new StoredObject(key, blob.length(), blob.crc(), new ByteArrayResource(blob.content()));
+    }
+
+    @Override
+    public StoredMetadata metadata(final StatementKey key) {
+        Blob blob = shard(key).store.get(key);
+        return blob == null ? null : new StoredMetadata(key, blob.length(), blob.crc());
+    }
+
+    @Override
+    public boolean exists(final StatementKey key) {
+        return shard(key).index.contains(key);
+    }
+
+    @Override
+    public List<StatementKey> list(final long customerId) {
+        return shard(customerId).index.list(customerId);
+    }
+
+    @Override
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        return shard(customerId).index.listDescending(customerId, offset, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        return shard(customerId).index.listBefore(customerId, beforePeriod, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        return shard(customerId).index.listBetween(customerId, fromPeriod, toPeriod);
+    }
+
+    @Override
+    public int count(final long customerId) {
+        return shard(customerId).index.count(customerId);
+    }
+
+    /** Visits every stored statement with its content, for snapshots; concurrent uploads may or may not be seen. */
+    void forEach(final BiConsumer<StatementKey, byte[]> action) {
+        for (Shard shard : shards) {
+            shard.store.forEach((key, blob) -> action.accept(key, blob.content()));
+        }
+    }
+
+    @Override
+    public StorageStats stats() {
+        long statements = 0;
+        long logicalBytes = 0;
+        for (Shard shard : shards) {
+            statements += shard.store.size();
+            logicalBytes += shard.logicalBytes.get();
+        }
+        return new StorageStats("memory", statements, logicalBytes, blobs.count(),
+                blobs.uniqueBytes(), blobs.storedBytes());
+    }
+
+    @Override
+    public StorageCapacity capacity() {
+        List<StorageCapacity.Shard> stats = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            stats.add(new StorageCapacity.Shard(i, shard.store.size(), shard.logicalBytes.get(),
+                    shard.residentBytes.get()));
+        }
+        return new StorageCapacity(maxBytes, maxShardBytes, residentBytes.get(), rejectedUploads.sum(), stats);
+    }
+
+    private Shard shard(final StatementKey key) {
+        return shard(key.customerId());
+    }
+
+    private Shard shard(final long customerId) {
+        // Customer ids are often sequential; mixing spreads them over the shards
+        return shards[(int) ((customerId * 0x9E3779B97F4A7C15L) >>> 32) & shardMask];
+    }
+}
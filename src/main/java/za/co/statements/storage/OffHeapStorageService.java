@@ -0,0 +1,343 @@
+package za.co.statements.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import za.co.statements.exception.StorageCapacityExceededException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory storage that keeps statement content off the heap ({@code storage.backend: offheap}), so the heap
+ * and GC pauses stay the same size however many statements are held. Content is appended to direct-memory
+ * {@link Slab}s of {@code storage.offheap.slab-size}; only the index of key to slab, offset, length and CRC
+ * stays on heap, at around a hundred bytes per statement. Reads are served as read-only views of the slab,
+ * without copying.
+ * <p>
+ * Slab space is reserved under a short lock and filled by the uploader outside it, in chunks straight from
+ * the request, and a statement only becomes visible once it is complete. Overwrites append and repoint the
+ * index, leaving dead space behind. Background compaction ({@code storage.offheap.compaction-interval})
+ * moves the live statements out of slabs that are less than {@code storage.offheap.compaction-threshold}
+ * live and drops those slabs. Uploads that would allocate a slab beyond {@code storage.offheap.max-size} are
+ * refused with a {@link StorageCapacityExceededException}. The limit counts whole slabs, dead space included.
+ */
+@Slf4j
+public class OffHeapStorageService implements StorageService {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final int slabBytes;
+    private final long maxBytes;
+    private final double compactionThreshold;
+
+    private final Map<StatementKey, Location> locations = new ConcurrentHashMap<>();
+    private final StatementIndex index = new StatementIndex();
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final LongAdder rejectedUploads = new LongAdder();
+
+    private final List<Slab> slabs = new CopyOnWriteArrayList<>();
+    private final ReentrantLock allocationLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private Slab active;
+    private int nextSlabId;
+
+    private record Location(Slab slab, int offset, int length, int crc) {
+
+        ByteBuffer view() {
+            return slab.view(offset, length);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Filler {
+
+        /** Fills the whole region and returns the CRC32 of what was written. */
+        int fill(ByteBuffer region) throws IOException;
+    }
+
+    /**
+     * @param slabBytes           size of each slab; larger statements get a slab of their own
+     * @param maxBytes            limit on the bytes of all slabs together
+     * @param compactionThreshold fraction of live bytes below which a slab is compacted
+     */
+    public OffHeapStorageService(final int slabBytes, final long maxBytes, final double compactionThreshold) {
+        if (slabBytes < 1) {
+            throw new IllegalArgumentException("Slab size must be positive, was " + slabBytes);
+        }
+        this.slabBytes = slabBytes;
+        this.maxBytes = maxBytes;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void upload(final StatementKey key, final byte[] content) {
+        try {
+            store(key, content.length, region -> {
+                region.put(content);
+                CRC32 crc32 = new CRC32();
+                crc32.update(content);
+                return (int) crc32.getValue();
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void upload(final StatementKey key, final InputStream content, final long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Statement too large to hold in memory: " + size + " bytes");
+        }
+        store(key, (int) size, region -> copy(content, region));
+    }
+
+    private void store(final StatementKey key, final int length, final Filler filler) throws IOException {
+        Location location = write(length, filler, true);
+        Location previous = locations.put(key, location);
+        index.add(key);
+
+        logicalBytes.addAndGet(length - (previous == null ? 0 : previous.length()));
+        if (previous != null) {
+            previous.slab().release(previous.length());
+        }
+    }
+
+    /** Reserves space, fills it and counts it live; the caller publishes or releases the location. */
+    private Location write(final int length, final Filler filler, final boolean enforce) throws IOException {
+        Slab slab;
+        int offset;
+        allocationLock.lock();
+        try {
+            slab = slabFor(length, enforce);
+            offset = slab.reserve(length);
+        } finally {
+            allocationLock.unlock();
+        }
+
+        boolean committed = false;
+        try {
+            int crc = filler.fill(slab.region(offset, length));
+            committed = true;
+            return new Location(slab, offset, length, crc);
+        } finally {
+            slab.complete(length, committed);
+        }
+    }
+
+    private Slab slabFor(final int length, final boolean enforce) {
+        if (active != null && active.remaining() >= length) {
+            return active;
+        }
+
+        int capacity = Math.max(slabBytes, length);
+        if (enforce && allocatedBytes.get() + capacity > maxBytes) {
+            rejectedUploads.increment();
+            throw new StorageCapacityExceededException("Storage is full, cannot allocate a " + capacity
+                    + " byte slab (" + allocatedBytes.get() + " of " + maxBytes + " bytes in use)");
+        }
+
+        Slab slab = new Slab(++nextSlabId, capacity);
+        allocatedBytes.addAndGet(capacity);
+        slabs.add(slab);
+        // A statement larger than a slab gets one to itself and leaves the active slab open
+        if (length <= slabBytes) {
+            active = slab;
+        }
+        return slab;
+    }
+
+    /**
+     * Streams exactly {@code region.remaining()} bytes into the region in fixed-size chunks and returns their
+     * CRC32. Fails if the stream ends early or has more data than announced.
+     */
+    private static int copy(final InputStream content, final ByteBuffer region) throws IOException {
+        int length = region.remaining();
+        byte[] chunk = new byte[Math.min(CHUNK_BYTES, Math.max(length, 1))];
+        CRC32 crc32 = new CRC32();
+
+        while (region.hasRemaining()) {
+            int read = content.read(chunk, 0, Math.min(chunk.length, region.remaining()));
+            if (read < 0) {
+                throw new IOException("Upload ended after " + region.position() + " of " + length + " bytes");
+            }
+            crc32.update(chunk, 0, read);
+            region.put(chunk, 0, read);
+        }
+
+        if (content.read() >= 0) {
+            throw new IOException("Upload is larger than the announced " + length + " bytes");
+        }
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Moves the live statements of every sealed slab below the compaction threshold into the active slab and
+     * drops the emptied slabs. Statements overwritten while they are being moved keep their new content; the
+     * copy is discarded.
+     */
+    @Scheduled(fixedDelayString = "${storage.offheap.compaction-interval:PT1M}",
+            initialDelayString = "${storage.offheap.compaction-interval:PT1M}")
+    public void compact() {
+        if (!compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            Set<Slab> candidates = candidates();
+            if (candidates.isEmpty()) {
+                return;
+            }
+
+            int moved = 0;
+            for (Map.Entry<StatementKey, Location> entry : locations.entrySet()) {
+                Location location = entry.getValue();
+                if (!candidates.contains(location.slab())) {
+                    continue;
+                }
+                Location copy;
+                try {
+                    copy = write(location.length(), region -> {
+                        region.put(location.view());
+                        return location.crc();
+                    }, false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (locations.replace(entry.getKey(), location, copy)) {
+                    location.slab().release(location.length());
+                    moved++;
+                } else {
+                    copy.slab().release(copy.length());
+                }
+            }
+
+            long reclaimed = 0;
+            for (Slab slab : candidates) {
+                if (slab.empty()) {
+                    slabs.remove(slab);
+                    allocatedBytes.addAndGet(-slab.capacity());
+                    reclaimed += slab.capacity();
+                }
+            }
+            log.info("Compacted {} slabs: moved {} statements, reclaimed {} bytes in {} ms",
+                    candidates.size(), moved, reclaimed, (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private Set<Slab> candidates() {
+        Slab current;
+        allocationLock.lock();
+        try {
+            current = active;
+        } finally {
+            allocationLock.unlock();
+        }
+
+        Set<Slab> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Slab slab : slabs) {
+            if (slab != current && slab.liveBytes() < slab.capacity() * compactionThreshold) {
+                candidates.add(slab);
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public byte[] read(final StatementKey key) {
+        Location location = locations.get(key);
+        if (location == null) {
+            return null;
+        }
+        byte[] content = new byte[location.length()];
+        location.view().get(content);
+        return content;
+    }
+
+    @Override
+    public StoredObject open(final StatementKey key) {
+        Location location = locations.get(key);
+        if (location == null) {
+            return null;
+        }
+        return new StoredObject(key, location.length(), location.crc(),
+                new ByteBufferResource(location.view(), key));
+    }
+
+    @Override
+    public StoredMetadata metadata(final StatementKey key) {
+        Location location = locations.get(key);
+        return location == null ? null : new StoredMetadata(key, location.length(), location.crc());
+    }
+
+    @Override
+    public boolean exists(final StatementKey key) {
+        return index.contains(key);
+    }
+
+    @Override
+    public List<StatementKey> list(final long customerId) {
+        return index.list(customerId);
+    }
+
+    @Override
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        return index.listDescending(customerId, offset, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        return index.listBefore(customerId, beforePeriod, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        return index.listBetween(customerId, fromPeriod, toPeriod);
+    }
+
+    @Override
+    public int count(final long customerId) {
+        return index.count(customerId);
+    }
+
+    /** Neither deduplicates nor compresses; stored bytes are the slabs, dead space included. */
+    @Override
+    public StorageStats stats() {
+        long statements = locations.size();
+        long bytes = logicalBytes.get();
+        return new StorageStats("offheap", statements, bytes, statements, bytes, allocatedBytes.get());
+    }
+
+    /** Totals only: statements are placed in slabs by arrival, not by customer, so there are no shards. */
+    @Override
+    public StorageCapacity capacity() {
+        return new StorageCapacity(maxBytes, Long.MAX_VALUE, allocatedBytes.get(), rejectedUploads.sum(),
+                List.of());
+    }
+
+    /** Number of slabs currently allocated, compaction having dropped the emptied ones. */
+    int slabCount() {
+        return slabs.size();
+    }
+}
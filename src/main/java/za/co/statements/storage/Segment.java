@@ -0,0 +1,175 @@
+package za.co.statements.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import za.co.statements.key.StatementKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One append-only segment file. The active segment is read through positional {@link FileChannel}
+ * reads; once sealed the whole file is mapped read-only and served from the page cache.
+ * <p>
+ * A full segment is retired rather than sealed outright: uploads that reserved space in it may still be
+ * streaming their content, so the last of them to finish seals it, and the force covers their records too.
+ */
+@Slf4j
+final class Segment implements Closeable {
+
+    private final int id;
+    private final Path file;
+    private final FileChannel channel;
+
+    private final AtomicInteger writers = new AtomicInteger();
+    private final AtomicBoolean sealing = new AtomicBoolean();
+    private volatile boolean retired;
+
+    private volatile MappedByteBuffer mapped;
+    private long size;
+
+    private Segment(final int id, final Path file, final FileChannel channel, final long size) {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    static Segment open(final int id, final Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, file, channel, channel.size());
+    }
+
+    int id() {
+        return id;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /** Bytes written so far. Only called by the single writer or during recovery. */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Reserves {@code recordLength} bytes at the end of the segment, writes {@code head} at its start
+     * and returns the record offset. The file is extended to cover the whole record up front, so the
+     * rest can be filled in with {@link #write} concurrently with other reservations and reads.
+     * Callers serialise reservations and call {@link #finishWrite} once the record is committed or aborted.
+     */
+    long reserve(final ByteBuffer head, final long recordLength) throws IOException {
+        long offset = size;
+        write(head, offset);
+        write(ByteBuffer.allocate(1), offset + recordLength - 1);
+        size = offset + recordLength;
+        writers.incrementAndGet();
+        return offset;
+    }
+
+    /** Ends a write begun by {@link #reserve}; the last one to finish in a retired segment seals it. */
+    void finishWrite() {
+        if (writers.decrementAndGet() == 0 && retired) {
+            sealQuietly();
+        }
+    }
+
+    /** Takes no further reservations and seals the segment once writes still in flight have finished. */
+    void retire() {
+        retired = true;
+        if (writers.get() == 0) {
+            sealQuietly();
+        }
+    }
+
+    boolean sealed() {
+        return mapped != null;
+    }
+
+    void write(final ByteBuffer source, final long offset) throws IOException {
+        long position = offset;
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /** Drops everything from {@code offset} onwards, used to cut off a torn write found at startup. */
+    void truncate(final long offset) throws IOException {
+        channel.truncate(offset);
+        size = offset;
+    }
+
+    void readFully(final ByteBuffer target, final long offset) throws IOException {
+        long position = offset;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment " + file + " at " + position);
+            }
+            position += read;
+        }
+    }
+
+    byte[] read(final long offset, final int length) {
+        byte[] content = new byte[length];
+        MappedByteBuffer view = mapped;
+        if (view != null) {
+            view.get(Math.toIntExact(offset), content, 0, length);
+            return content;
+        }
+
+        try {
+            readFully(ByteBuffer.wrap(content), offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return content;
+    }
+
+    /** Zero-copy view of a record's content: a slice of the mapping once sealed, a file region before. */
+    Resource resource(final long offset, final int length, final StatementKey key) {
+        MappedByteBuffer view = mapped;
+        if (view != null) {
+            return new ByteBufferResource(view.slice(Math.toIntExact(offset), length), key);
+        }
+        return new FileRegionResource(channel, offset, length, key);
+    }
+
+    /** Flushes and maps the segment; no further appends are allowed afterwards. */
+    void seal() throws IOException {
+        if (sealing.compareAndSet(false, true)) {
+            channel.force(false);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Seals on behalf of an upload that has already committed its record, so a failure is logged rather than
+     * failing that upload; the segment keeps serving reads through the channel and is forced again on close.
+     */
+    private void sealQuietly() {
+        try {
+            seal();
+        } catch (IOException e) {
+            log.warn("Unable to seal segment {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package za.co.statements.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StorageService;
+import za.co.statements.service.StorageStats;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Disk-backed storage made of append-only segment files under {@code storage.base-path}.
+ * <p>
+ * Each record is {@code [magic][crc32][keyLength][contentLength][key][content]}, the key being the
+ * customer id (8 bytes) and {@code yyyymm} period (4 bytes). Only the offset index lives on heap; PDF bytes
+ * stay in the files and are read back through the page cache.
+ * Uploads reserve their record under a short lock and then stream the content into it in fixed-size
+ * chunks, so concurrent uploads never hold more than one chunk each on heap. A record is written with
+ * a pending magic and only flipped to {@link #MAGIC} and indexed once its content and checksum are
+ * complete; failed uploads are marked aborted and skipped.
+ * Overwrites append a new record and repoint the index, the old record becomes dead space.
+ * <p>
+ * Segments are only forced when sealed or closed. A full segment is sealed once the uploads still streaming
+ * into it have finished, so the force covers every record it holds. After a crash the page cache may have persisted a
+ * record's magic but not all of its content. On startup the segments are therefore scanned record by
+ * record and each committed record's content is checked against its CRC before it is indexed; records
+ * that fail the check are skipped like pending ones, leaving any earlier version of the statement in
+ * place. A torn record at the tail of the last segment (crash mid-write) is truncated away.
+ */
+@Slf4j
+public class SegmentStorageService implements StorageService, Closeable {
+
+    static final int MAGIC = 0x53544D4B; // "STMK"
+    static final int PENDING_MAGIC = 0x53544D50; // "STMP", upload still streaming
+    static final int ABORTED_MAGIC = 0x53544D58; // "STMX", upload failed, space is dead
+    static final int HEADER_BYTES = 16;
+    static final int KEY_BYTES = Long.BYTES + Integer.BYTES;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+
+    private final Map<StatementKey, Location> locations = new ConcurrentHashMap<>();
+    private final StatementIndex index = new StatementIndex();
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Segment active;
+
+    private record Location(Segment segment, long offset, int length, int crc) {}
+
+    public SegmentStorageService(final Path basePath, final long maxSegmentBytes) {
+        this.directory = basePath.resolve("segments");
+        this.maxSegmentBytes = maxSegmentBytes;
+
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open segment store at " + directory, e);
+        }
+    }
+
+    @Override
+    public void upload(final StatementKey key, final InputStream content, final long size) throws IOException {
+        if (size < 0 || size > maxSegmentBytes) {
+            throw new IllegalArgumentException("Statement exceeds maximum size of " + maxSegmentBytes + " bytes");
+        }
+
+        int length = (int) size;
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + KEY_BYTES)
+                .putInt(PENDING_MAGIC)
+                .putInt(0)
+                .putInt(KEY_BYTES)
+                .putInt(length)
+                .putLong(key.customerId())
+                .putInt(key.period())
+                .flip();
+
+        Segment segment;
+        long recordOffset;
+        writeLock.lock();
+        try {
+            segment = active;
+            recordOffset = segment.reserve(head, HEADER_BYTES + KEY_BYTES + size);
+            if (segment.size() >= maxSegmentBytes) {
+                roll();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        long contentOffset = recordOffset + HEADER_BYTES + KEY_BYTES;
+        int crc;
+        try {
+            crc = commit(content, segment, recordOffset, length);
+        } finally {
+            segment.finishWrite();
+        }
+
+        track(locations.put(key, new Location(segment, contentOffset, length, crc)), length);
+        index.add(key);
+    }
+
+    /** Fills a reserved record and marks it committed, or aborted if the content could not be copied. */
+    private static int commit(final InputStream content, final Segment segment, final long recordOffset,
+                              final int length) throws IOException {
+        int crc;
+        try {
+            crc = copy(content, segment, recordOffset + HEADER_BYTES + KEY_BYTES, length);
+        } catch (IOException | RuntimeException e) {
+            segment.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, ABORTED_MAGIC), recordOffset);
+            throw e;
+        }
+
+        // Checksum first, magic last. Not forced, so the disk may see them out of order: recovery re-checks the CRC
+        segment.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, crc), recordOffset + Integer.BYTES);
+        segment.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC), recordOffset);
+        return crc;
+    }
+
+    /**
+     * Streams exactly {@code length} bytes into the reserved region in fixed-size chunks and returns
+     * their CRC32. Fails if the stream ends early or has more data than announced.
+     */
+    private static int copy(final InputStream content, final Segment segment, final long offset, final int length)
+            throws IOException {
+        byte[] chunk = new byte[Math.min(CHUNK_BYTES, Math.max(length, 1))];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        CRC32 crc32 = new CRC32();
+
+        long written = 0;
+        while (written < length) {
+            int read = content.read(chunk, 0, (int) Math.min(chunk.length, length - written));
+            if (read < 0) {
+                throw new IOException("Upload ended after " + written + " of " + length + " bytes");
+            }
+            crc32.update(chunk, 0, read);
+            buffer.clear().limit(read);
+            segment.write(buffer, offset + written);
+            written += read;
+        }
+
+        if (content.read() >= 0) {
+            throw new IOException("Upload is larger than the announced " + length + " bytes");
+        }
+        return (int) crc32.getValue();
+    }
+
+    @Override
+    public byte[] read(final StatementKey key) {
+        Location location = locations.get(key);
+        if (location == null) {
+            return null;
+        }
+        return location.segment().read(location.offset(), location.length());
+    }
+
+    @Override
+    public StoredObject open(final StatementKey key) {
+        Location location = locations.get(key);
+        if (location == null) {
+            return null;
+        }
+        return new StoredObject(key, location.length(), location.crc(),
+                location.segment().resource(location.offset(), location.length(), key));
+    }
+
+    @Override
+    public StoredMetadata metadata(final StatementKey key) {
+        Location location = locations.get(key);
+        return location == null ? null : new StoredMetadata(key, location.length(), location.crc());
+    }
+
+    @Override
+    public boolean exists(final StatementKey key) {
+        return index.contains(key);
+    }
+
+    @Override
+    public List<StatementKey> list(final long customerId) {
+        return index.list(customerId);
+    }
+
+    @Override
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        return index.listDescending(customerId, offset, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        return index.listBefore(customerId, beforePeriod, limit);
+    }
+
+    @Override
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        return index.listBetween(customerId, fromPeriod, toPeriod);
+    }
+
+    @Override
+    public int count(final long customerId) {
+        return index.count(customerId);
+    }
+
+    /** The segment backend does not deduplicate or compress, so every statement counts as its own blob. */
+    @Override
+    public StorageStats stats() {
+        long statements = locations.size();
+        long bytes = logicalBytes.get();
+        return new StorageStats("segment", statements, bytes, statements, bytes, bytes);
+    }
+
+    /** Number of segments sealed so far, the active one never among them. */
+    int sealedSegments() {
+        writeLock.lock();
+        try {
+            return (int) segments.stream().filter(Segment::sealed).count();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void track(final Location previous, final int length) {
+        logicalBytes.addAndGet(length - (previous == null ? 0 : previous.length()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long started = System.nanoTime();
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            Segment segment = Segment.open(segmentId(file), file);
+            scan(segment);
+            segments.add(segment);
+
+            if (i < files.size() - 1) {
+                segment.seal();
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(Segment.open(1, segmentFile(1)));
+        }
+        active = segments.get(segments.size() - 1);
+        if (active.size() >= maxSegmentBytes) {
+            roll();
+        }
+
+        log.info("Recovered {} statements from {} segments in {} ms",
+                locations.size(), segments.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void scan(final Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+        CRC32 crc32 = new CRC32();
+        long offset = 0;
+        long end = segment.size();
+
+        while (offset + HEADER_BYTES <= end) {
+            header.clear();
+            segment.readFully(header, offset);
+            header.flip();
+
+            int magic = header.getInt();
+            int crc = header.getInt();
+            int keyLength = header.getInt();
+            int contentLength = header.getInt();
+            long recordEnd = offset + HEADER_BYTES + keyLength + (long) contentLength;
+
+            boolean knownMagic = magic == MAGIC || magic == PENDING_MAGIC || magic == ABORTED_MAGIC;
+            if (!knownMagic || keyLength != KEY_BYTES || contentLength < 0 || recordEnd > end) {
+                break;
+            }
+            if (magic != MAGIC) {
+                // Upload that failed or was cut off by a crash, never visible to readers
+                offset = recordEnd;
+                continue;
+            }
+
+            long contentOffset = offset + HEADER_BYTES + keyLength;
+            if (checksum(segment, contentOffset, contentLength, chunk, crc32) != crc) {
+                log.warn("Skipping record in {} at offset {}: content does not match its checksum",
+                        segment.file(), offset);
+                offset = recordEnd;
+                continue;
+            }
+
+            StatementKey key = readKey(segment, offset);
+            Location location = new Location(segment, contentOffset, contentLength, crc);
+            track(locations.put(key, location), contentLength);
+            index.add(key);
+            offset = recordEnd;
+        }
+
+        if (offset < end) {
+            log.warn("Truncating torn record in {} at offset {} ({} bytes dropped)",
+                    segment.file(), offset, end - offset);
+            segment.truncate(offset);
+        }
+    }
+
+    private static int checksum(final Segment segment, final long offset, final int length,
+                                final ByteBuffer chunk, final CRC32 crc32) throws IOException {
+        crc32.reset();
+        long read = 0;
+        while (read < length) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), length - read));
+            segment.readFully(chunk, offset + read);
+            chunk.flip();
+            read += chunk.remaining();
+            crc32.update(chunk);
+        }
+        return (int) crc32.getValue();
+    }
+
+    private static StatementKey readKey(final Segment segment, final long offset) throws IOException {
+        ByteBuffer keyBytes = ByteBuffer.allocate(KEY_BYTES);
+        segment.readFully(keyBytes, offset + HEADER_BYTES);
+        keyBytes.flip();
+        return new StatementKey(keyBytes.getLong(), keyBytes.getInt());
+    }
+
+    private void roll() throws IOException {
+        active.retire();
+        Segment next = Segment.open(active.id() + 1, segmentFile(active.id() + 1));
+        segments.add(next);
+        active = next;
+        log.info("Rolled to new segment {}", next.file());
+    }
+
+    private Path segmentFile(final int id) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentId(final Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,88 @@
+package za.co.statements.storage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One off-heap slab of the {@link OffHeapStorageService}: a direct buffer filled front to back with statement
+ * content. Space is handed out by bumping {@link #reserve}, filled in by the uploader outside any lock and
+ * never written again; overwritten statements leave dead space that only compaction gets back.
+ * <p>
+ * The slab's memory is released by the JDK once the buffer is unreachable, which includes every slice handed
+ * to a reader. A slab dropped by compaction therefore stays valid for downloads still streaming from it.
+ */
+final class Slab {
+
+    private final int id;
+    private final ByteBuffer buffer;
+    private int used;
+
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicInteger liveStatements = new AtomicInteger();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    Slab(final int id, final int capacity) {
+        this.id = id;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    int id() {
+        return id;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /** Bytes not yet handed out. Callers serialise reservations. */
+    int remaining() {
+        return buffer.capacity() - used;
+    }
+
+    /** Hands out {@code length} bytes and returns their offset. Callers serialise reservations. */
+    int reserve(final int length) {
+        int offset = used;
+        used += length;
+        pendingWrites.incrementAndGet();
+        return offset;
+    }
+
+    /** A writable view of a reserved region, independent of other views. */
+    ByteBuffer region(final int offset, final int length) {
+        return buffer.slice(offset, length);
+    }
+
+    /** A read-only view of a committed region; the content is not copied. */
+    ByteBuffer view(final int offset, final int length) {
+        return buffer.slice(offset, length).asReadOnlyBuffer();
+    }
+
+    /** Ends a reservation; a committed region counts as live until {@link #release}d. */
+    void complete(final int length, final boolean committed) {
+        if (committed) {
+            liveBytes.addAndGet(length);
+            liveStatements.incrementAndGet();
+        }
+        pendingWrites.decrementAndGet();
+    }
+
+    void release(final int length) {
+        liveBytes.addAndGet(-length);
+        liveStatements.decrementAndGet();
+    }
+
+    long liveBytes() {
+        return liveBytes.get();
+    }
+
+    int liveStatements() {
+        return liveStatements.get();
+    }
+
+    /** True once nothing in the slab is live or still being written, so dropping it loses no statement. */
+    boolean empty() {
+        // Pending first: a writer counts its region live before it stops being pending
+        return pendingWrites.get() == 0 && liveBytes.get() == 0;
+    }
+}
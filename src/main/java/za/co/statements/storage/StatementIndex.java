@@ -0,0 +1,158 @@
+package za.co.statements.storage;
+
+import za.co.statements.key.StatementKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Secondary index of stored statements by customer. Each customer holds a sorted array of {@code yyyymm}
+ * periods, replaced copy-on-write with a compare-and-set when a new period is added, so reads take a
+ * consistent snapshot without locking and a page is a slice of that array. A customer has at most a few
+ * hundred periods, which keeps the copies small; re-uploads of a known period leave the array untouched.
+ * <p>
+ * Alongside the array each customer has a bitmap of the months from its first period to its last. Periods are
+ * dense months, so the bitmap is exact and a few longs per customer: {@link #contains} answers with one bit
+ * test, and a miss never reaches the backend's storage. Customers whose periods span more than
+ * {@value #MAX_BITMAP_MONTHS} months fall back to a binary search of the array.
+ */
+public class StatementIndex {
+
+    static final int MAX_BITMAP_MONTHS = 100 * 12;
+
+    private static final Periods EMPTY = new Periods(new int[0], 0, new long[0]);
+
+    private final Map<Long, AtomicReference<Periods>> customers = new ConcurrentHashMap<>();
+
+    /**
+     * @param sorted     the customer's periods in ascending order
+     * @param firstMonth month number ({@code year * 12 + month - 1}) of bit 0 of {@code months}
+     * @param months     one bit per month from {@code firstMonth}, or null when the span is too wide
+     */
+    private record Periods(int[] sorted, int firstMonth, long[] months) {
+
+        boolean contains(final int period) {
+            if (months == null) {
+                return Arrays.binarySearch(sorted, period) >= 0;
+            }
+            int bit = month(period) - firstMonth;
+            return bit >= 0 && bit < months.length * Long.SIZE && (months[bit >>> 6] & 1L << bit) != 0;
+        }
+
+        Periods with(final int period) {
+            int position = Arrays.binarySearch(sorted, period);
+            if (position >= 0) {
+                return this;
+            }
+            int insertAt = -position - 1;
+            int[] next = new int[sorted.length + 1];
+            System.arraycopy(sorted, 0, next, 0, insertAt);
+            next[insertAt] = period;
+            System.arraycopy(sorted, insertAt, next, insertAt + 1, sorted.length - insertAt);
+            return of(next);
+        }
+
+        static Periods of(final int[] sorted) {
+            int first = month(sorted[0]);
+            int span = month(sorted[sorted.length - 1]) - first + 1;
+            if (span > MAX_BITMAP_MONTHS) {
+                return new Periods(sorted, first, null);
+            }
+            long[] months = new long[(span + Long.SIZE - 1) / Long.SIZE];
+            for (int period : sorted) {
+                int bit = month(period) - first;
+                months[bit >>> 6] |= 1L << bit;
+            }
+            return new Periods(sorted, first, months);
+        }
+
+        private static int month(final int period) {
+            return period / 100 * 12 + period % 100 - 1;
+        }
+    }
+
+    public void add(final StatementKey key) {
+        AtomicReference<Periods> periods =
+                customers.computeIfAbsent(key.customerId(), customerId -> new AtomicReference<>(EMPTY));
+
+        Periods current;
+        Periods next;
+        do {
+            current = periods.get();
+            next = current.with(key.period());
+            if (next == current) {
+                return;
+            }
+        } while (!periods.compareAndSet(current, next));
+    }
+
+    /** Whether a statement was indexed for the key; exact, as a statement is never removed. */
+    public boolean contains(final StatementKey key) {
+        AtomicReference<Periods> periods = customers.get(key.customerId());
+        return periods != null && periods.get().contains(key.period());
+    }
+
+    public List<StatementKey> list(final long customerId) {
+        int[] sorted = periods(customerId);
+        List<StatementKey> keys = new ArrayList<>(sorted.length);
+        for (int period : sorted) {
+            keys.add(new StatementKey(customerId, period));
+        }
+        return keys;
+    }
+
+    public List<StatementKey> listDescending(final long customerId, final long offset, final int limit) {
+        int[] sorted = periods(customerId);
+        if (limit <= 0 || offset >= sorted.length) {
+            return List.of();
+        }
+
+        int from = sorted.length - 1 - (int) offset;
+        int size = Math.min(limit, from + 1);
+        List<StatementKey> page = new ArrayList<>(size);
+        for (int i = from; i > from - size; i--) {
+            page.add(new StatementKey(customerId, sorted[i]));
+        }
+        return page;
+    }
+
+    public List<StatementKey> listBefore(final long customerId, final int beforePeriod, final int limit) {
+        int[] sorted = periods(customerId);
+        int position = Arrays.binarySearch(sorted, beforePeriod);
+        int end = position >= 0 ? position : -position - 1;
+        int size = Math.max(0, Math.min(limit, end));
+
+        List<StatementKey> page = new ArrayList<>(size);
+        for (int i = end - 1; i >= end - size; i--) {
+            page.add(new StatementKey(customerId, sorted[i]));
+        }
+        return page;
+    }
+
+    public List<StatementKey> listBetween(final long customerId, final int fromPeriod, final int toPeriod) {
+        int[] sorted = periods(customerId);
+        int from = Arrays.binarySearch(sorted, fromPeriod);
+        int start = from >= 0 ? from : -from - 1;
+        int to = Arrays.binarySearch(sorted, toPeriod);
+        int end = to >= 0 ? to + 1 : -to - 1;
+
+        List<StatementKey> keys = new ArrayList<>(Math.max(0, end - start));
+        for (int i = end - 1; i >= start; i--) {
+            keys.add(new StatementKey(customerId, sorted[i]));
+        }
+        return keys;
+    }
+
+    public int count(final long customerId) {
+        return periods(customerId).length;
+    }
+
+    private int[] periods(final long customerId) {
+        AtomicReference<Periods> periods = customers.get(customerId);
+        return (periods == null ? EMPTY : periods.get()).sorted();
+    }
+}
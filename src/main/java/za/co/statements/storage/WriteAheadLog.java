@@ -0,0 +1,580 @@
+package za.co.statements.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log that lets a heap-held structure survive restarts. The owner logs every change
+ * with {@link #append} and applies it once the record is on disk, and on startup {@link #open} replays the
+ * latest snapshot and the log written after it.
+ * <p>
+ * Records are {@code [length][crc32][partition][payload]}. The partition is chosen by the owner, typically
+ * the hash of the changed key: records of one partition are replayed in log order, different partitions in
+ * parallel, so replay must be idempotent per key and safe to call concurrently. Live changes of one partition
+ * are applied in log order too, so the heap never ends up with a different last write than replay would.
+ * <p>
+ * With {@code fsync} enabled an append returns only once its record has been forced to disk. Forcing is a
+ * group commit: the first waiting writer forces everything appended so far while later writers keep appending
+ * and wait, and the next force covers all of them, so one fsync is shared by every upload that arrived
+ * during the previous one. Without {@code fsync} records reach the page cache only, which survives a
+ * process crash but not a power loss.
+ * <p>
+ * {@link #checkpoint} compacts: it switches to a new log generation, writes the owner's full state into a
+ * snapshot split over several part files, and then deletes the older logs and snapshots. Snapshot N holds
+ * everything logged before log N, so recovery loads the newest complete snapshot (parts in parallel) and
+ * then replays the logs from generation N on. A record torn by a crash at the tail of the last log is
+ * truncated away.
+ * <p>
+ * A record that fails to write is cut off again so later records are not stranded behind it; if even that
+ * fails the log refuses every further append rather than acknowledge uploads that recovery would drop.
+ */
+@Slf4j
+public final class WriteAheadLog implements Closeable {
+
+    static final int HEADER_BYTES = 12;
+
+    private static final String LOG_PREFIX = "log-";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String PART_PREFIX = "part-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAX_LOG_BYTES = 512L * 1024 * 1024;
+    private static final int ORDER_STRIPES = 256;
+
+    /** Writes the owner's state into a snapshot, one {@link #write} per live entry. */
+    @FunctionalInterface
+    public interface SnapshotSource {
+        void writeTo(SnapshotWriter snapshot) throws IOException;
+    }
+
+    public interface SnapshotWriter {
+        void write(int partition, ByteBuffer... payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int parallelism;
+
+    // Held shared from append until the change is applied, exclusively to start a new generation
+    private final ReadWriteLock applyLock = new ReentrantReadWriteLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    // Held by partition from logging a change until it is applied, so one partition applies in log order
+    private final ReentrantLock[] applyOrder = new ReentrantLock[ORDER_STRIPES];
+    private volatile IOException failure;
+    private final List<LogFile> logs = new ArrayList<>();
+    private volatile LogFile active;
+    private volatile long appended;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durable;
+    private final AtomicLong syncCount = new AtomicLong();
+
+    private record LogFile(int generation, Path file, FileChannel channel) {}
+
+    private record Entry(int partition, ByteBuffer payload) {}
+
+    private WriteAheadLog(final Path directory, final boolean fsync, final int parallelism) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.parallelism = parallelism;
+        for (int i = 0; i < ORDER_STRIPES; i++) {
+            applyOrder[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Opens the log in {@code directory}, replaying the newest snapshot and every later log record into
+     * {@code replay} on up to {@code parallelism} threads before returning. The buffers handed to
+     * {@code replay} are only valid during the call.
+     */
+    public static WriteAheadLog open(final Path directory, final boolean fsync, final int parallelism,
+                                     final Consumer<ByteBuffer> replay) {
+        WriteAheadLog wal = new WriteAheadLog(directory, fsync, Math.max(1, parallelism));
+        try {
+            Files.createDirectories(directory);
+            wal.recover(replay);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open write-ahead log at " + directory, e);
+        }
+        return wal;
+    }
+
+    /**
+     * Logs one change and then runs {@code apply}; with fsync enabled the record is on disk before it runs.
+     * Changes of one partition are applied in the order they were logged. If logging fails nothing is applied
+     * and the exception is rethrown.
+     */
+    public void append(final int partition, final Runnable apply, final ByteBuffer... payload) throws IOException {
+        ByteBuffer[] record = encode(partition, payload);
+
+        // Read lock first: a checkpoint waiting for the write lock must not block a holder of the order lock
+        applyLock.readLock().lock();
+        ReentrantLock order = applyOrder[Math.floorMod(partition, ORDER_STRIPES)];
+        order.lock();
+        try {
+            long sequence;
+            writeLock.lock();
+            try {
+                if (failure != null) {
+                    throw new IOException("Write-ahead log in " + directory + " failed earlier", failure);
+                }
+                FileChannel channel = active.channel();
+                long start = channel.position();
+                try {
+                    writeFully(channel, record);
+                } catch (IOException e) {
+                    discard(channel, start, e);
+                    throw e;
+                }
+                sequence = ++appended;
+                if (channel.position() >= MAX_LOG_BYTES) {
+                    roll();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+
+            if (fsync) {
+                awaitDurable(sequence);
+            }
+            apply.run();
+        } finally {
+            order.unlock();
+            applyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cuts a partly written record off the log, as recovery would stop at it and drop every record after it.
+     * If that fails too, the log is failed for good. Called under the write lock.
+     */
+    private void discard(final FileChannel channel, final long start, final IOException cause) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            log.error("Unable to discard a partly written record in {}, refusing further appends", directory, e);
+        }
+    }
+
+    /** Number of forces issued so far; with group commit this stays well below the number of appends. */
+    public long syncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Waits until record {@code sequence} has been forced. One waiter at a time forces the log and covers
+     * every record appended before it started; the others wait for it and usually find themselves covered.
+     */
+    private void awaitDurable(final long sequence) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable < sequence) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                // Read the sequence before the channel: records of an older log were forced when it rolled
+                long target = appended;
+                FileChannel channel = active.channel();
+                syncLock.unlock();
+                boolean forced = false;
+                try {
+                    channel.force(false);
+                    syncCount.incrementAndGet();
+                    forced = true;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (forced) {
+                        durable = Math.max(durable, target);
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Compacts the log into a snapshot of {@code source}. Changes logged before the switch to the new
+     * generation are applied before the snapshot starts; later ones may or may not be in it and are
+     * replayed from the new log either way. Returns without doing anything if a checkpoint is running.
+     */
+    public void checkpoint(final SnapshotSource source) throws IOException {
+        if (!checkpointLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            int generation;
+            applyLock.writeLock().lock();
+            try {
+                writeLock.lock();
+                try {
+                    roll();
+                    generation = active.generation();
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                applyLock.writeLock().unlock();
+            }
+
+            Path temp = directory.resolve(snapshotName(generation) + TEMP_SUFFIX);
+            Files.createDirectories(temp);
+            long records;
+            try (Snapshot snapshot = new Snapshot(temp, parallelism)) {
+                source.writeTo(snapshot);
+                snapshot.force();
+                records = snapshot.records;
+            }
+            Files.move(temp, directory.resolve(snapshotName(generation)), StandardCopyOption.ATOMIC_MOVE);
+
+            deleteBefore(generation);
+            log.info("Checkpointed {} records into {} in {} ms",
+                    records, snapshotName(generation), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (LogFile logFile : logs) {
+                if (fsync && logFile == active) {
+                    logFile.channel().force(false);
+                }
+                logFile.channel().close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Forces and keeps the current log (it may still be forced by a waiter) and starts the next generation. */
+    private void roll() throws IOException {
+        active.channel().force(false);
+        LogFile next = openLog(active.generation() + 1);
+        logs.add(next);
+        active = next;
+    }
+
+    private void deleteBefore(final int generation) throws IOException {
+        writeLock.lock();
+        syncLock.lock();
+        try {
+            // A force started before the checkpoint may still hold an old channel
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            List<LogFile> obsolete = logs.stream().filter(logFile -> logFile.generation() < generation).toList();
+            for (LogFile logFile : obsolete) {
+                logFile.channel().close();
+                Files.deleteIfExists(logFile.file());
+            }
+            logs.removeAll(obsolete);
+        } finally {
+            syncLock.unlock();
+            writeLock.unlock();
+        }
+
+        for (Path snapshot : list(SNAPSHOT_PREFIX)) {
+            String name = snapshot.getFileName().toString();
+            if (name.endsWith(TEMP_SUFFIX) || generation(name, SNAPSHOT_PREFIX, "") < generation) {
+                deleteRecursively(snapshot);
+            }
+        }
+    }
+
+    private void recover(final Consumer<ByteBuffer> replay) throws IOException {
+        long started = System.nanoTime();
+
+        int snapshotGeneration = 0;
+        Path snapshot = null;
+        for (Path candidate : list(SNAPSHOT_PREFIX)) {
+            String name = candidate.getFileName().toString();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Checkpoint interrupted before it completed, the logs it would have replaced are still there
+                deleteRecursively(candidate);
+                continue;
+            }
+            snapshot = candidate;
+            snapshotGeneration = generation(name, SNAPSHOT_PREFIX, "");
+        }
+
+        List<Path> logFiles = new ArrayList<>();
+        for (Path file : list(LOG_PREFIX)) {
+            int generation = generation(file.getFileName().toString(), LOG_PREFIX, LOG_SUFFIX);
+            if (generation < snapshotGeneration) {
+                Files.delete(file);
+            } else {
+                logFiles.add(file);
+            }
+        }
+
+        AtomicLong replayed = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, recoveryThreads());
+        try {
+            if (snapshot != null) {
+                // Each live entry appears once in a snapshot, so its parts can be loaded in any order
+                List<Future<?>> parts = new ArrayList<>();
+                for (Path part : list(snapshot, PART_PREFIX)) {
+                    parts.add(workers.submit(() -> {
+                        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+                            List<Entry> entries = new ArrayList<>();
+                            scan(channel, part, entries, false);
+                            entries.forEach(entry -> replay.accept(entry.payload()));
+                            replayed.addAndGet(entries.size());
+                        }
+                        return null;
+                    }));
+                }
+                await(parts);
+            }
+
+            for (Path file : logFiles) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                List<Entry> entries = new ArrayList<>();
+                channel.position(scan(channel, file, entries, true));
+                logs.add(new LogFile(generation(file.getFileName().toString(), LOG_PREFIX, LOG_SUFFIX),
+                        file, channel));
+                replayed.addAndGet(replayInParallel(entries, replay, workers));
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        if (logs.isEmpty()) {
+            logs.add(openLog(Math.max(1, snapshotGeneration)));
+        }
+        active = logs.get(logs.size() - 1);
+
+        log.info("Recovered {} records from {} and {} log files in {} ms",
+                replayed.get(), snapshot == null ? "no snapshot" : snapshot.getFileName(), logFiles.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Spreads the records over the workers by partition, each worker replaying its share in log order,
+     * so changes to one key keep their order while different keys are replayed side by side.
+     */
+    private int replayInParallel(final List<Entry> entries, final Consumer<ByteBuffer> replay,
+                                 final ExecutorService workers) throws IOException {
+        List<List<ByteBuffer>> shares = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            shares.add(new ArrayList<>());
+        }
+        for (Entry entry : entries) {
+            shares.get(Math.floorMod(entry.partition(), parallelism)).add(entry.payload());
+        }
+
+        List<Future<?>> tasks = new ArrayList<>(parallelism);
+        for (List<ByteBuffer> share : shares) {
+            tasks.add(workers.submit(() -> share.forEach(replay)));
+        }
+        await(tasks);
+        return entries.size();
+    }
+
+    /**
+     * Maps the file and collects every intact record with a view of its payload. Stops at the first torn
+     * or corrupt record, and cuts it off when {@code truncate} is set. Returns the end of the last intact
+     * record.
+     */
+    private static long scan(final FileChannel channel, final Path file, final List<Entry> entries,
+                             final boolean truncate) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(file + " is larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        int offset = 0;
+        CRC32 crc32 = new CRC32();
+        while (offset + HEADER_BYTES <= size) {
+            int length = mapped.getInt(offset);
+            int crc = mapped.getInt(offset + Integer.BYTES);
+            int payloadStart = offset + HEADER_BYTES;
+            if (length < 0 || payloadStart + (long) length > size) {
+                break;
+            }
+            ByteBuffer payload = mapped.slice(payloadStart, length);
+            crc32.reset();
+            crc32.update(payload.duplicate());
+            if ((int) crc32.getValue() != crc) {
+                break;
+            }
+            entries.add(new Entry(mapped.getInt(offset + 2 * Integer.BYTES), payload));
+            offset = payloadStart + length;
+        }
+
+        if (offset < size) {
+            log.warn("Dropping torn or corrupt record in {} at offset {} ({} bytes)", file, offset, size - offset);
+            if (truncate) {
+                channel.truncate(offset);
+            }
+        }
+        return offset;
+    }
+
+    /** Prepends the record header to the payload, ready for a gathering write. */
+    private static ByteBuffer[] encode(final int partition, final ByteBuffer... payload) {
+        int length = 0;
+        CRC32 crc32 = new CRC32();
+        for (ByteBuffer part : payload) {
+            length += part.remaining();
+            crc32.update(part.duplicate());
+        }
+        ByteBuffer[] record = new ByteBuffer[payload.length + 1];
+        record[0] = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(length)
+                .putInt((int) crc32.getValue())
+                .putInt(partition)
+                .flip();
+        System.arraycopy(payload, 0, record, 1, payload.length);
+        return record;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer[] record) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer part : record) {
+            remaining += part.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(record);
+        }
+    }
+
+    private LogFile openLog(final int generation) throws IOException {
+        Path file = directory.resolve(String.format("%s%08d%s", LOG_PREFIX, generation, LOG_SUFFIX));
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new LogFile(generation, file, channel);
+    }
+
+    private List<Path> list(final String prefix) throws IOException {
+        return list(directory, prefix);
+    }
+
+    private static List<Path> list(final Path directory, final String prefix) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing
+                    .filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+        }
+    }
+
+    private static String snapshotName(final int generation) {
+        return String.format("%s%08d", SNAPSHOT_PREFIX, generation);
+    }
+
+    private static int generation(final String name, final String prefix, final String suffix) {
+        return Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static void deleteRecursively(final Path path) throws IOException {
+        try (Stream<Path> tree = Files.walk(path)) {
+            for (Path file : tree.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void await(final List<Future<?>> tasks) throws IOException {
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during recovery", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Recovery failed", e.getCause());
+        }
+    }
+
+    private static ThreadFactory recoveryThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "wal-recovery-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Snapshot being written: one part file per partition group, written through a shared record format. */
+    private static final class Snapshot implements SnapshotWriter, Closeable {
+
+        private final FileChannel[] parts;
+        private long records;
+
+        Snapshot(final Path directory, final int partCount) throws IOException {
+            parts = new FileChannel[partCount];
+            for (int i = 0; i < partCount; i++) {
+                parts[i] = FileChannel.open(directory.resolve(String.format("%s%03d%s", PART_PREFIX, i, LOG_SUFFIX)),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+        }
+
+        @Override
+        public void write(final int partition, final ByteBuffer... payload) throws IOException {
+            writeFully(parts[Math.floorMod(partition, parts.length)], encode(partition, payload));
+            records++;
+        }
+
+        void force() throws IOException {
+            for (FileChannel part : parts) {
+                part.force(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (FileChannel part : parts) {
+                part.close();
+            }
+        }
+    }
+}
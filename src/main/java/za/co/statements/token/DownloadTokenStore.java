@@ -1,81 +1,54 @@
 package za.co.statements.token;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Component;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-
-@Component
-@Slf4j
-public class DownloadTokenStore {
-
-    private final Map<String, TokenData> tokens = new ConcurrentHashMap<>();
-
-    private static class TokenData {
-        String path;
-        Instant expiresAt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Issues and checks time-limited download tokens. The implementation is selected with
+ * {@code statement.token.mode}, see {@link za.co.statements.config.TokenConfig}.
+ */
+public interface DownloadTokenStore {
+
+    String generateToken(StatementKey key, Duration ttl);
+
+    /** Issues one token per key, all with the same expiry, in the order of {@code keys}. */
+    default List<String> generateTokens(final List<StatementKey> keys, final Duration ttl) {
+        List<String> tokens = new ArrayList<>(keys.size());
+        for (StatementKey key : keys) {
+            tokens.add(generateToken(key, ttl));
+        }
+        return tokens;
     }
 
-    public String generateToken(final String path, final Duration ttl) {
-        String token = UUID.randomUUID().toString();
-
-        TokenData data = new TokenData();
-        data.path = path;
-        data.expiresAt = Instant.now().plus(ttl);
-        tokens.put(token, data);
-
-        log.info("Generated token {} for path={}, expiresAt={}", token, path, data.expiresAt);
-
-        return token;
-    }
+    /** Returns the statement the token grants access to, or {@code null} if it is invalid, expired or revoked. */
+    StatementKey validateToken(String token);
 
-    public String validateToken(final String token) {
-        TokenData data = tokens.get(token);
+    /** Issues one token for all of a customer's statements in {@code range}, for a streamed export. */
+    String generateExportToken(StatementRange range, Duration ttl);
 
-        if (data == null) {
-            log.warn("Token {} not found or expired", token);
-            return null;
-        }
+    /**
+     * Returns the range an export token grants, or {@code null} if it is invalid, expired or revoked. A token
+     * issued for a single statement grants the range of that one month.
+     */
+    StatementRange validateExportToken(String token);
 
-        if (Instant.now().isAfter(data.expiresAt)) {
-            log.warn("Token {} expired at {}", token, data.expiresAt);
-            tokens.remove(token);
-            return null;
-        }
+    void purgeExpired();
 
-        log.info("Token {} validated successfully", token);
-        return data.path;
-    }
+    void forceExpireToken(String token);
 
-    @Scheduled(fixedRate = 60_000) // every 1 minute
-    public void purgeExpired() {
-        int before = tokens.size();
+    /** Number of token entries currently held in memory. */
+    int liveTokenCount();
 
-        tokens.entrySet().removeIf(entry -> {
-            boolean expired = entry.getValue().expiresAt.isBefore(Instant.now());
-            if (expired) {
-                log.info("Purging expired token={}", entry.getKey());
-            }
-            return expired;
-        });
+    /** Total number of held entries dropped after expiring. */
+    long purgedTokenCount();
 
-        int after = tokens.size();
-        if (before != after) {
-            log.info("Purged {} expired tokens", before - after);
-        }
-    }
+    /** Validations rejected because the token had expired or was force-expired. */
+    long expiredTokenHits();
 
-    public void forceExpireToken(final String token) {
-        TokenData data = tokens.get(token);
-        if (data != null) {
-            data.expiresAt = Instant.now().minusSeconds(1);
-            log.info("Forced expiry of token {}", token);
-        }
-    }
+    /** Validations rejected because the token was malformed, unknown or forged. */
+    long invalidTokenHits();
 }
-
@@ -0,0 +1,384 @@
+package za.co.statements.token;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+import za.co.statements.logging.LogSummary;
+import za.co.statements.logging.RedactedToken;
+import za.co.statements.storage.WriteAheadLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stateful token mode ({@code statement.token.mode=store}). A token is 128 random bits rendered in UUID layout
+ * ({@code 8-4-4-4-12} hex digits) and stored as two longs in a {@link TokenTable}, with its expiry as
+ * epoch millis. Validation parses the token in place and allocates only the returned key. The scheduled
+ * purge only visits tokens whose expiry has passed, see {@link TokenTable}. With {@code storage.wal.enabled}
+ * grants are also written to a {@link WriteAheadLog}, so tokens survive a restart.
+ * <p>
+ * Log records are told apart by length: a forced expiry is {@value #EXPIRY_BYTES} bytes, an export grant
+ * {@value #RANGE_GRANT_BYTES} and anything else a batch of {@value #GRANT_BYTES}-byte statement grants.
+ */
+@Slf4j
+public class InMemoryDownloadTokenStore implements DownloadTokenStore, Closeable {
+
+    private static final int TOKEN_LENGTH = 36;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // high, low, expiry, customer id and period of a grant; an export grant adds the last period of its
+    // range and a forced expiry leaves out the key
+    private static final int GRANT_BYTES = 3 * Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int RANGE_GRANT_BYTES = GRANT_BYTES + Integer.BYTES;
+    private static final int EXPIRY_BYTES = 3 * Long.BYTES;
+    // Stands in for the key of a token whose forced expiry is replayed before its grant
+    private static final StatementKey REVOKED = new StatementKey(0, 0);
+
+    private final TokenTable tokens = new TokenTable();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder malformedHits = new LongAdder();
+    private final LogSummary generated = LogSummary.info(log, "Generated {} download tokens in the last {} s");
+    private final LogSummary validated = LogSummary.info(log, "Validated {} download tokens in the last {} s");
+    private final LogSummary rejected = LogSummary.warn(log, "Rejected {} download tokens in the last {} s");
+    private final WriteAheadLog wal;
+
+    /** Keeps tokens on heap only; they are lost on restart. */
+    public InMemoryDownloadTokenStore() {
+        this.wal = null;
+    }
+
+    /**
+     * Logs every grant and forced expiry to a {@link WriteAheadLog} in {@code directory} and restores the
+     * tokens that are still live from it, so download links keep working across restarts.
+     */
+    public InMemoryDownloadTokenStore(final Path directory, final boolean fsync, final int recoveryThreads) {
+        this.wal = WriteAheadLog.open(directory, fsync, recoveryThreads, this::replay);
+        tokens.purgeExpired(System.currentTimeMillis());
+    }
+
+    @Override
+    public String generateToken(final StatementKey key, final Duration ttl) {
+        String token = issue(new StatementRange(key.customerId(), key.period(), key.period()), ttl);
+        log.debug("Generated token {} for key={}", RedactedToken.of(token), key);
+        generated.record();
+        return token;
+    }
+
+    @Override
+    public String generateExportToken(final StatementRange range, final Duration ttl) {
+        String token = issue(range, ttl);
+        log.debug("Generated export token {} for range={}", RedactedToken.of(token), range);
+        generated.record();
+        return token;
+    }
+
+    /** Draws a fresh token, never all zeros, and grants it {@code grant} until {@code ttl} from now. */
+    private String issue(final StatementRange grant, final Duration ttl) {
+        long high;
+        long low;
+        do {
+            high = random.nextLong();
+            low = random.nextLong();
+        } while (high == 0 && low == 0);
+
+        grant(high, low, grant, System.currentTimeMillis() + ttl.toMillis());
+        return format(high, low);
+    }
+
+    private void grant(final long high, final long low, final StatementRange grant, final long expiresAt) {
+        if (wal == null) {
+            tokens.put(high, low, grant, expiresAt);
+        } else {
+            log(high, low, () -> tokens.put(high, low, grant, expiresAt), encode(high, low, grant, expiresAt));
+        }
+    }
+
+    /** Issues the tokens under one expiry and, with a log, in a single record and a single force. */
+    @Override
+    public List<String> generateTokens(final List<StatementKey> keys, final Duration ttl) {
+        List<String> issued = grant(keys, System.currentTimeMillis() + ttl.toMillis());
+        log.debug("Generated {} tokens", issued.size());
+        generated.record();
+        return issued;
+    }
+
+    private List<String> grant(final List<StatementKey> keys, final long expiresAt) {
+        int count = keys.size();
+        long[] highs = new long[count];
+        long[] lows = new long[count];
+        for (int i = 0; i < count; i++) {
+            do {
+                highs[i] = random.nextLong();
+                lows[i] = random.nextLong();
+            } while (highs[i] == 0 && lows[i] == 0);
+        }
+
+        Runnable put = () -> {
+            for (int i = 0; i < count; i++) {
+                tokens.put(highs[i], lows[i], keys.get(i), expiresAt);
+            }
+        };
+        if (wal == null || count == 0) {
+            put.run();
+        } else {
+            ByteBuffer grants = ByteBuffer.allocate(count * GRANT_BYTES);
+            for (int i = 0; i < count; i++) {
+                writeGrant(grants, highs[i], lows[i], keys.get(i), expiresAt);
+            }
+            log(highs[0], lows[0], put, grants.flip());
+        }
+
+        List<String> issued = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            issued.add(format(highs[i], lows[i]));
+        }
+        return issued;
+    }
+
+    @Override
+    @Timed(value = "statement.token.validate", histogram = true)
+    public StatementKey validateToken(final String token) {
+        StatementKey key = lookup(token, TokenTable::singleStatement);
+        if (key == null) {
+            log.debug("Token {} not found or expired", RedactedToken.of(token));
+            rejected.record();
+            return null;
+        }
+
+        log.debug("Token {} validated successfully", RedactedToken.of(token));
+        validated.record();
+        return key;
+    }
+
+    @Override
+    @Timed(value = "statement.token.validate-export", histogram = true)
+    public StatementRange validateExportToken(final String token) {
+        StatementRange range = lookup(token, StatementRange::new);
+        if (range == null) {
+            log.debug("Export token {} not found or expired", RedactedToken.of(token));
+            return null;
+        }
+
+        log.debug("Export token {} validated successfully", RedactedToken.of(token));
+        return range;
+    }
+
+    /** Parses and validates in a single pass over the token, without intermediate copies. */
+    private <T> T lookup(final String token, final TokenTable.Grant<T> grant) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            malformedHits.increment();
+            return null;
+        }
+
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    malformedHits.increment();
+                    return null;
+                }
+                continue;
+            }
+            int value = hexValue(c);
+            if (value < 0) {
+                malformedHits.increment();
+                return null;
+            }
+            if (i < 18) {
+                high = (high << 4) | value;
+            } else {
+                low = (low << 4) | value;
+            }
+        }
+        return tokens.validate(high, low, System.currentTimeMillis(), grant);
+    }
+
+    @Override
+    @Scheduled(fixedRate = 60_000) // every 1 minute
+    @Timed("statement.token.purge")
+    public void purgeExpired() {
+        long started = System.nanoTime();
+        int purged = tokens.purgeExpired(System.currentTimeMillis());
+        if (purged > 0) {
+            log.info("Purged {} expired tokens in {} ms, {} live",
+                    purged, (System.nanoTime() - started) / 1_000_000, tokens.size());
+        }
+    }
+
+    @Override
+    public void forceExpireToken(final String token) {
+        if (!isWellFormed(token)) {
+            return;
+        }
+        long high = parseHigh(token);
+        long low = parseLow(token);
+        long expiresAt = System.currentTimeMillis() - 1_000;
+        if (wal != null) {
+            ByteBuffer expiry = ByteBuffer.allocate(EXPIRY_BYTES).putLong(high).putLong(low).putLong(expiresAt).flip();
+            log(high, low, () -> tokens.expire(high, low, expiresAt), expiry);
+        } else if (!tokens.expire(high, low, expiresAt)) {
+            return;
+        }
+        log.info("Forced expiry of token {}", RedactedToken.of(token));
+    }
+
+    /** Compacts the token log into a snapshot of the live tokens; does nothing without a log. */
+    @Scheduled(fixedDelayString = "${storage.wal.checkpoint-interval:PT10M}",
+            initialDelayString = "${storage.wal.checkpoint-interval:PT10M}")
+    public void checkpoint() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        wal.checkpoint(snapshot -> tokens.forEach(System.currentTimeMillis(), (high, low, grant, expiresAt) ->
+                snapshot.write(partition(high, low), encode(high, low, grant, expiresAt))));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    private void log(final long high, final long low, final Runnable apply, final ByteBuffer record) {
+        try {
+            wal.append(partition(high, low), apply, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to log download token", e);
+        }
+    }
+
+    /**
+     * Applies a logged forced expiry or batch of grants. Replay merges, keeping the earliest expiry seen for
+     * a token, so the result does not depend on the order records of one token are replayed in.
+     */
+    private void replay(final ByteBuffer record) {
+        if (record.remaining() == EXPIRY_BYTES) {
+            tokens.merge(record.getLong(0), record.getLong(Long.BYTES), REVOKED, record.getLong(2 * Long.BYTES));
+            return;
+        }
+        if (record.remaining() == RANGE_GRANT_BYTES) {
+            StatementRange range = new StatementRange(record.getLong(3 * Long.BYTES),
+                    record.getInt(4 * Long.BYTES), record.getInt(4 * Long.BYTES + Integer.BYTES));
+            tokens.merge(record.getLong(0), record.getLong(Long.BYTES), range, record.getLong(2 * Long.BYTES));
+            return;
+        }
+        for (int offset = 0; offset < record.remaining(); offset += GRANT_BYTES) {
+            StatementKey key = new StatementKey(record.getLong(offset + 3 * Long.BYTES),
+                    record.getInt(offset + 4 * Long.BYTES));
+            tokens.merge(record.getLong(offset), record.getLong(offset + Long.BYTES), key,
+                    record.getLong(offset + 2 * Long.BYTES));
+        }
+    }
+
+    /** Encodes a single grant, as a statement grant when it covers one period and as an export grant otherwise. */
+    private static ByteBuffer encode(final long high, final long low, final StatementRange grant,
+                                     final long expiresAt) {
+        StatementKey first = new StatementKey(grant.customerId(), grant.fromPeriod());
+        if (grant.fromPeriod() == grant.toPeriod()) {
+            return writeGrant(ByteBuffer.allocate(GRANT_BYTES), high, low, first, expiresAt).flip();
+        }
+        return writeGrant(ByteBuffer.allocate(RANGE_GRANT_BYTES), high, low, first, expiresAt)
+                .putInt(grant.toPeriod()).flip();
+    }
+
+    private static ByteBuffer writeGrant(final ByteBuffer target, final long high, final long low,
+                                         final StatementKey key, final long expiresAt) {
+        return target.putLong(high).putLong(low).putLong(expiresAt).putLong(key.customerId()).putInt(key.period());
+    }
+
+    private static int partition(final long high, final long low) {
+        return Long.hashCode(high ^ low);
+    }
+
+    @Override
+    public int liveTokenCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public long purgedTokenCount() {
+        return tokens.purgedCount();
+    }
+
+    @Override
+    public long expiredTokenHits() {
+        return tokens.expiredHits();
+    }
+
+    @Override
+    public long invalidTokenHits() {
+        return malformedHits.sum() + tokens.unknownHits();
+    }
+
+    static String format(final long high, final long low) {
+        char[] chars = new char[TOKEN_LENGTH];
+        int position = 0;
+        for (int nibble = 0; nibble < 32; nibble++) {
+            if (nibble == 8 || nibble == 12 || nibble == 16 || nibble == 20) {
+                chars[position++] = '-';
+            }
+            long half = nibble < 16 ? high : low;
+            chars[position++] = HEX[(int) (half >>> (60 - 4 * (nibble & 15))) & 0xF];
+        }
+        return new String(chars);
+    }
+
+    static boolean isWellFormed(final String token) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            char c = token.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : hexValue(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long parseHigh(final String token) {
+        return parseHex(token, 0, 19);
+    }
+
+    static long parseLow(final String token) {
+        return parseHex(token, 19, TOKEN_LENGTH);
+    }
+
+    private static long parseHex(final String token, final int from, final int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            if (c != '-') {
+                value = (value << 4) | hexValue(c);
+            }
+        }
+        return value;
+    }
+
+    private static int hexValue(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
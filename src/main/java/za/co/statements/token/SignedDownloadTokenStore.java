@@ -0,0 +1,305 @@
+package za.co.statements.token;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+import za.co.statements.logging.LogSummary;
+import za.co.statements.logging.RedactedToken;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stateless token mode ({@code statement.token.mode=signed}). The token carries the statement key and expiry,
+ * authenticated with HMAC-SHA256: {@code base64url(version, expiresAt, customerId, period) + "." + base64url(mac)}.
+ * Export tokens are version 2 and carry the last period of their range after the first.
+ * <p>
+ * Validation only checks the signature and the clock, so any instance sharing the signing key can
+ * serve the download and tokens survive restarts. Nothing is stored per token; the only state is a
+ * small revocation set for {@link #forceExpireToken}, which is local to this instance.
+ * The payload is signed, not encrypted: the key is readable by whoever holds the token.
+ */
+@Slf4j
+public class SignedDownloadTokenStore implements DownloadTokenStore {
+
+    private static final byte VERSION = 1;
+    private static final byte RANGE_VERSION = 2;
+    private static final int HEADER_BYTES = 1 + Long.BYTES;
+    private static final int PAYLOAD_BYTES = HEADER_BYTES + Long.BYTES + Integer.BYTES;
+    private static final int RANGE_PAYLOAD_BYTES = PAYLOAD_BYTES + Integer.BYTES;
+    private static final int MAC_BYTES = 16;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    // Initialised Macs for reuse. Not a ThreadLocal: with virtual threads every request is a new thread
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Revoked token signatures mapped to the token expiry, after which the entry can be dropped. Keyed on the
+     * decoded MAC, not its text: base64url leaves spare bits in the last character that decoding ignores, so
+     * several spellings of one signature would otherwise each need revoking.
+     */
+    private final Map<Signature, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicLong purged = new AtomicLong();
+    private final LongAdder expiredHits = new LongAdder();
+    private final LongAdder invalidHits = new LongAdder();
+    private final LogSummary generated = LogSummary.info(log, "Generated {} signed tokens in the last {} s");
+    private final LogSummary validated = LogSummary.info(log, "Validated {} signed tokens in the last {} s");
+    private final LogSummary rejected = LogSummary.warn(log, "Rejected {} signed tokens in the last {} s");
+
+    /** The {@value #MAC_BYTES}-byte MAC of a verified token. */
+    private record Signature(long high, long low) {
+
+        static Signature of(final byte[] mac) {
+            ByteBuffer buffer = ByteBuffer.wrap(mac);
+            return new Signature(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    public SignedDownloadTokenStore(final byte[] signingKey) {
+        if (signingKey.length < 32) {
+            throw new IllegalArgumentException("Token signing key must be at least 256 bits");
+        }
+        this.key = new SecretKeySpec(signingKey, ALGORITHM);
+    }
+
+    @Override
+    public String generateToken(final StatementKey key, final Duration ttl) {
+        String token = issue(key, System.currentTimeMillis() + ttl.toMillis());
+        log.debug("Generated signed token for key={}", key);
+        generated.record();
+        return token;
+    }
+
+    @Override
+    public List<String> generateTokens(final List<StatementKey> keys, final Duration ttl) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        List<String> tokens = new ArrayList<>(keys.size());
+        for (StatementKey key : keys) {
+            tokens.add(issue(key, expiresAt));
+        }
+        log.debug("Generated {} signed tokens", tokens.size());
+        generated.record();
+        return tokens;
+    }
+
+    private String issue(final StatementKey key, final long expiresAt) {
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_BYTES)
+                .put(VERSION)
+                .putLong(expiresAt)
+                .putLong(key.customerId())
+                .putInt(key.period())
+                .array();
+
+        return encode(payload);
+    }
+
+    @Override
+    public String generateExportToken(final StatementRange range, final Duration ttl) {
+        byte[] payload = ByteBuffer.allocate(RANGE_PAYLOAD_BYTES)
+                .put(RANGE_VERSION)
+                .putLong(System.currentTimeMillis() + ttl.toMillis())
+                .putLong(range.customerId())
+                .putInt(range.fromPeriod())
+                .putInt(range.toPeriod())
+                .array();
+
+        log.debug("Generated signed export token for range={}", range);
+        generated.record();
+        return encode(payload);
+    }
+
+    /** Renders a token as its payload and the payload's signature, both base64url. */
+    private String encode(final byte[] payload) {
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    @Override
+    @Timed(value = "statement.token.validate", histogram = true)
+    public StatementKey validateToken(final String token) {
+        ByteBuffer payload = verify(token);
+        if (payload == null || payload.get(0) == RANGE_VERSION) {
+            if (payload != null) {
+                invalidHits.increment();
+                log.debug("Token {} is an export token", RedactedToken.of(token));
+            }
+            rejected.record();
+            return null;
+        }
+        StatementKey key = statementKey(payload);
+
+        log.debug("Token {} validated successfully", RedactedToken.of(token));
+        validated.record();
+        return key;
+    }
+
+    @Override
+    @Timed(value = "statement.token.validate-export", histogram = true)
+    public StatementRange validateExportToken(final String token) {
+        ByteBuffer payload = verify(token);
+        if (payload == null) {
+            log.debug("Export token {} rejected", RedactedToken.of(token));
+            return null;
+        }
+
+        StatementRange range;
+        if (payload.get(0) == RANGE_VERSION) {
+            range = new StatementRange(payload.getLong(), payload.getInt(), payload.getInt());
+        } else {
+            StatementKey key = statementKey(payload);
+            range = new StatementRange(key.customerId(), key.period(), key.period());
+        }
+
+        log.debug("Export token {} validated successfully", RedactedToken.of(token));
+        return range;
+    }
+
+    /**
+     * Checks the signature, expiry and revocation of a token. Returns its payload positioned after the expiry,
+     * or {@code null} if the token must be rejected.
+     */
+    private ByteBuffer verify(final String token) {
+        int separator = token == null ? -1 : token.indexOf('.');
+        if (separator <= 0) {
+            invalidHits.increment();
+            log.debug("Malformed token {}", RedactedToken.of(token));
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            invalidHits.increment();
+            log.debug("Malformed token {}", RedactedToken.of(token));
+            return null;
+        }
+
+        if (!wellFormed(payload) || !MessageDigest.isEqual(sign(payload), signature)) {
+            invalidHits.increment();
+            log.debug("Token {} has an invalid signature", RedactedToken.of(token));
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        long expiresAt = buffer.getLong();
+        if (System.currentTimeMillis() >= expiresAt) {
+            expiredHits.increment();
+            log.debug("Token {} expired at {}", RedactedToken.of(token), expiresAt);
+            return null;
+        }
+        if (revoked.containsKey(Signature.of(signature))) {
+            expiredHits.increment();
+            log.debug("Token {} was revoked", RedactedToken.of(token));
+            return null;
+        }
+        return buffer;
+    }
+
+    private static StatementKey statementKey(final ByteBuffer payload) {
+        return new StatementKey(payload.getLong(), payload.getInt());
+    }
+
+    private static boolean wellFormed(final byte[] payload) {
+        return payload.length == PAYLOAD_BYTES && payload[0] == VERSION
+                || payload.length == RANGE_PAYLOAD_BYTES && payload[0] == RANGE_VERSION;
+    }
+
+    @Override
+    @Scheduled(fixedRate = 60_000) // every 1 minute
+    @Timed("statement.token.purge")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        int dropped = before - revoked.size();
+        if (dropped > 0) {
+            purged.addAndGet(dropped);
+            log.info("Dropped {} revocations of expired tokens", dropped);
+        }
+    }
+
+    @Override
+    public void forceExpireToken(final String token) {
+        int separator = token == null ? -1 : token.indexOf('.');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (wellFormed(payload) && MessageDigest.isEqual(sign(payload), signature)) {
+                long expiresAt = ByteBuffer.wrap(payload, 1, Long.BYTES).getLong();
+                revoked.put(Signature.of(signature), expiresAt);
+                log.info("Forced expiry of token {}", RedactedToken.of(token));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot revoke malformed token {}", RedactedToken.of(token));
+        }
+    }
+
+    @Override
+    public int liveTokenCount() {
+        return revoked.size();
+    }
+
+    @Override
+    public long purgedTokenCount() {
+        return purged.get();
+    }
+
+    @Override
+    public long expiredTokenHits() {
+        return expiredHits.sum();
+    }
+
+    @Override
+    public long invalidTokenHits() {
+        return invalidHits.sum();
+    }
+
+    private byte[] sign(final byte[] payload) {
+        Mac hmac = macs.poll();
+        if (hmac == null) {
+            hmac = newMac();
+        }
+        byte[] mac = hmac.doFinal(payload);
+        macs.offer(hmac);
+
+        byte[] truncated = new byte[MAC_BYTES];
+        System.arraycopy(mac, 0, truncated, 0, MAC_BYTES);
+        return truncated;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package za.co.statements.token;
+
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Primitive open-addressing map from a 128-bit token (two longs) to a {@link StatementKey}, or a
+ * {@link StatementRange} for export tokens, and an expiry in epoch millis.
+ * <p>
+ * The table is split into stripes, each a linear-probing hash table guarded by a {@link StampedLock}.
+ * A slot is four consecutive longs (high, low, expiry, customer id), so a probe touches a single cache line
+ * and no object is held per token; the {@code yyyymm} periods live in two parallel int arrays, first and
+ * last, which are equal for a single statement. Lookups run under an optimistic read and allocate only the
+ * returned key; writers take the stripe lock exclusively.
+ * Removal uses backward-shift deletion, so there are no tombstones to clean up.
+ * The all-zero key marks an empty slot and is never handed out as a token.
+ * <p>
+ * Each stripe also files its keys into one-second expiry buckets ordered by time. A purge pops only the
+ * buckets that have fully elapsed and removes their tokens, so its cost follows the number of expired
+ * tokens rather than the number of live ones. A bucket may still name a token that was already removed
+ * on validation or whose expiry was moved; such stale keys are checked against the table and skipped.
+ */
+final class TokenTable {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int SLOT_LONGS = 4;
+    private static final long BUCKET_MILLIS = 1_000;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    TokenTable() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void put(final long high, final long low, final StatementKey key, final long expiresAt) {
+        stripe(low).put(high, low, key.customerId(), key.period(), key.period(), expiresAt, false);
+    }
+
+    void put(final long high, final long low, final StatementRange range, final long expiresAt) {
+        stripe(low).put(high, low, range.customerId(), range.fromPeriod(), range.toPeriod(), expiresAt, false);
+    }
+
+    /**
+     * Like {@link #put}, but a token that is already present keeps the earlier of the two expiries. Replaying
+     * a grant and a forced expiry of the same token this way gives the same result in either order.
+     */
+    void merge(final long high, final long low, final StatementKey key, final long expiresAt) {
+        stripe(low).put(high, low, key.customerId(), key.period(), key.period(), expiresAt, true);
+    }
+
+    void merge(final long high, final long low, final StatementRange range, final long expiresAt) {
+        stripe(low).put(high, low, range.customerId(), range.fromPeriod(), range.toPeriod(), expiresAt, true);
+    }
+
+    /** Builds the result of a successful lookup from the stored customer id and periods. */
+    @FunctionalInterface
+    interface Grant<T> {
+        T of(long customerId, int fromPeriod, int toPeriod);
+    }
+
+    /**
+     * Returns the key of a live token, or {@code null} if the token is unknown or expired at {@code now}, or
+     * grants a range rather than a single statement. Expired tokens found on the way are removed.
+     */
+    StatementKey validate(final long high, final long low, final long now) {
+        return validate(high, low, now, TokenTable::singleStatement);
+    }
+
+    /** Like {@link #validate(long, long, long)}, but hands what the token grants to {@code grant}. */
+    <T> T validate(final long high, final long low, final long now, final Grant<T> grant) {
+        return stripe(low).validate(high, low, now, grant);
+    }
+
+    static StatementKey singleStatement(final long customerId, final int fromPeriod, final int toPeriod) {
+        return fromPeriod == toPeriod ? new StatementKey(customerId, fromPeriod) : null;
+    }
+
+    boolean expire(final long high, final long low, final long expiresAt) {
+        return stripe(low).expire(high, low, expiresAt);
+    }
+
+    /** Removes the tokens in every fully elapsed expiry bucket and returns how many were removed. */
+    int purgeExpired(final long now) {
+        int purged = 0;
+        for (Stripe stripe : stripes) {
+            purged += stripe.purgeExpired(now);
+        }
+        return purged;
+    }
+
+    /** Receives one token of a {@link #forEach} walk. */
+    @FunctionalInterface
+    interface TokenVisitor {
+        void visit(long high, long low, StatementRange grant, long expiresAt) throws IOException;
+    }
+
+    /**
+     * Visits every token that is live at {@code now}. Each stripe is copied under its read lock and visited
+     * outside it, so a slow visitor does not hold up token generation.
+     */
+    void forEach(final long now, final TokenVisitor visitor) throws IOException {
+        for (Stripe stripe : stripes) {
+            long[] slots;
+            int[] periods;
+            int[] lastPeriods;
+            long stamp = stripe.lock.readLock();
+            try {
+                slots = stripe.slots.clone();
+                periods = stripe.periods.clone();
+                lastPeriods = stripe.lastPeriods.clone();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+
+            for (int i = 0; i < periods.length; i++) {
+                long expiresAt = slots[SLOT_LONGS * i + 2];
+                if (Stripe.occupied(slots, i) && now < expiresAt) {
+                    visitor.visit(slots[SLOT_LONGS * i], slots[SLOT_LONGS * i + 1],
+                            new StatementRange(slots[SLOT_LONGS * i + 3], periods[i], lastPeriods[i]), expiresAt);
+                }
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /** Validations of keys that are not in the table. */
+    long unknownHits() {
+        long hits = 0;
+        for (Stripe stripe : stripes) {
+            hits += stripe.unknownHits.sum();
+        }
+        return hits;
+    }
+
+    /** Validations of keys that were in the table but expired. */
+    long expiredHits() {
+        long hits = 0;
+        for (Stripe stripe : stripes) {
+            hits += stripe.expiredHits.sum();
+        }
+        return hits;
+    }
+
+    /** Total number of expired tokens removed so far, by purges or on validation. */
+    long purgedCount() {
+        long purged = 0;
+        for (Stripe stripe : stripes) {
+            purged += stripe.purged;
+        }
+        return purged;
+    }
+
+    private Stripe stripe(final long low) {
+        return stripes[(int) (low >>> 58)];
+    }
+
+    private static int slot(final long high, final long low, final int mask) {
+        long hash = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+
+        // slots[4 * i] to slots[4 * i + 3] hold high, low, expiry and customer id of slot i
+        private long[] slots = new long[SLOT_LONGS * INITIAL_CAPACITY];
+        private int[] periods = new int[INITIAL_CAPACITY];
+        private int[] lastPeriods = new int[INITIAL_CAPACITY];
+        private volatile int size;
+        private volatile long purged;
+        private final LongAdder unknownHits = new LongAdder();
+        private final LongAdder expiredHits = new LongAdder();
+
+        // Expiry second -> keys of the tokens expiring in that second, guarded by the write lock
+        private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+        void put(final long high, final long low, final long customerId, final int period, final int lastPeriod,
+                 final long expiresAt, final boolean keepEarlier) {
+            long stamp = lock.writeLock();
+            try {
+                if ((size + 1) * 2 > periods.length) {
+                    resize(periods.length * 2);
+                }
+                int index = find(slots, high, low);
+                long expiry = expiresAt;
+                if (index < 0) {
+                    index = ~index;
+                    slots[SLOT_LONGS * index] = high;
+                    slots[SLOT_LONGS * index + 1] = low;
+                    size++;
+                } else if (keepEarlier) {
+                    expiry = Math.min(expiry, slots[SLOT_LONGS * index + 2]);
+                }
+                slots[SLOT_LONGS * index + 2] = expiry;
+                slots[SLOT_LONGS * index + 3] = customerId;
+                periods[index] = period;
+                lastPeriods[index] = lastPeriod;
+                schedule(high, low, expiry);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        <T> T validate(final long high, final long low, final long now, final Grant<T> grant) {
+            long stamp = lock.tryOptimisticRead();
+            long[] currentSlots = slots;
+            int[] currentPeriods = periods;
+            int[] currentLastPeriods = lastPeriods;
+            int index = find(currentSlots, high, low);
+            long expiresAt = NOT_FOUND;
+            long customerId = 0;
+            int period = 0;
+            int lastPeriod = 0;
+            // A racing resize can pair a new slot array with old periods; validate() catches it
+            if (index >= 0 && index < currentPeriods.length && index < currentLastPeriods.length) {
+                expiresAt = currentSlots[SLOT_LONGS * index + 2];
+                customerId = currentSlots[SLOT_LONGS * index + 3];
+                period = currentPeriods[index];
+                lastPeriod = currentLastPeriods[index];
+            }
+
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    index = find(slots, high, low);
+                    if (index >= 0) {
+                        expiresAt = slots[SLOT_LONGS * index + 2];
+                        customerId = slots[SLOT_LONGS * index + 3];
+                        period = periods[index];
+                        lastPeriod = lastPeriods[index];
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            if (index < 0) {
+                unknownHits.increment();
+                return null;
+            }
+            if (now >= expiresAt) {
+                expiredHits.increment();
+                remove(high, low, now);
+                return null;
+            }
+            return grant.of(customerId, period, lastPeriod);
+        }
+
+        boolean expire(final long high, final long low, final long expiresAt) {
+            long stamp = lock.writeLock();
+            try {
+                int index = find(slots, high, low);
+                if (index < 0) {
+                    return false;
+                }
+                slots[SLOT_LONGS * index + 2] = expiresAt;
+                schedule(high, low, expiresAt);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /** Removes the token if it is still expired at {@code now}; a concurrent re-put wins. */
+        private void remove(final long high, final long low, final long now) {
+            long stamp = lock.writeLock();
+            try {
+                int index = find(slots, high, low);
+                if (index >= 0 && now >= slots[SLOT_LONGS * index + 2]) {
+                    delete(index);
+                    purged++;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int purgeExpired(final long now) {
+            long current = Math.floorDiv(now, BUCKET_MILLIS);
+            long stamp = lock.writeLock();
+            try {
+                int removed = 0;
+                Map.Entry<Long, Bucket> first;
+                while ((first = buckets.firstEntry()) != null && first.getKey() <= current) {
+                    Bucket bucket = first.getValue();
+                    boolean partial = first.getKey() == current;
+                    int kept = 0;
+                    for (int i = 0; i < bucket.length; i += 2) {
+                        long high = bucket.keys[i];
+                        long low = bucket.keys[i + 1];
+                        int index = find(slots, high, low);
+                        if (index < 0) {
+                            continue;
+                        }
+                        if (now >= slots[SLOT_LONGS * index + 2]) {
+                            delete(index);
+                            removed++;
+                        } else if (partial) {
+                            // Current second, not expired yet: keep it for the next purge
+                            bucket.keys[kept++] = high;
+                            bucket.keys[kept++] = low;
+                        }
+                    }
+                    bucket.length = kept;
+                    if (kept > 0) {
+                        break;
+                    }
+                    buckets.pollFirstEntry();
+                }
+                purged += removed;
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void schedule(final long high, final long low, final long expiresAt) {
+            buckets.computeIfAbsent(Math.floorDiv(expiresAt, BUCKET_MILLIS), second -> new Bucket()).add(high, low);
+        }
+
+        /**
+         * Linear probe for the key. Returns its slot, or {@code ~slot} of the empty slot where it would go.
+         * Only reads {@code table}, so it is safe to run against a snapshot under an optimistic read.
+         */
+        private static int find(final long[] table, final long high, final long low) {
+            int mask = table.length / SLOT_LONGS - 1;
+            int index = slot(high, low, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                long storedHigh = table[SLOT_LONGS * index];
+                long storedLow = table[SLOT_LONGS * index + 1];
+                if (storedHigh == high && storedLow == low) {
+                    return index;
+                }
+                if (storedHigh == 0 && storedLow == 0) {
+                    return ~index;
+                }
+                index = (index + 1) & mask;
+            }
+            return ~0;
+        }
+
+        private static boolean occupied(final long[] table, final int index) {
+            return table[SLOT_LONGS * index] != 0 || table[SLOT_LONGS * index + 1] != 0;
+        }
+
+        private void delete(final int removed) {
+            int mask = periods.length - 1;
+            int hole = removed;
+            int index = (hole + 1) & mask;
+
+            while (occupied(slots, index)) {
+                int home = slot(slots[SLOT_LONGS * index], slots[SLOT_LONGS * index + 1], mask);
+                // Move the entry back if the hole lies on its probe path from home to index
+                boolean movable = hole <= index
+                        ? home <= hole || home > index
+                        : home <= hole && home > index;
+                if (movable) {
+                    System.arraycopy(slots, SLOT_LONGS * index, slots, SLOT_LONGS * hole, SLOT_LONGS);
+                    periods[hole] = periods[index];
+                    lastPeriods[hole] = lastPeriods[index];
+                    hole = index;
+                }
+                index = (index + 1) & mask;
+            }
+
+            slots[SLOT_LONGS * hole] = 0;
+            slots[SLOT_LONGS * hole + 1] = 0;
+            slots[SLOT_LONGS * hole + 2] = 0;
+            slots[SLOT_LONGS * hole + 3] = 0;
+            periods[hole] = 0;
+            lastPeriods[hole] = 0;
+            size--;
+        }
+
+        private void resize(final int capacity) {
+            long[] oldSlots = slots;
+            int[] oldPeriods = periods;
+            int[] oldLastPeriods = lastPeriods;
+
+            long[] newSlots = new long[SLOT_LONGS * capacity];
+            int[] newPeriods = new int[capacity];
+            int[] newLastPeriods = new int[capacity];
+
+            for (int i = 0; i < oldPeriods.length; i++) {
+                if (occupied(oldSlots, i)) {
+                    int index = ~find(newSlots, oldSlots[SLOT_LONGS * i], oldSlots[SLOT_LONGS * i + 1]);
+                    System.arraycopy(oldSlots, SLOT_LONGS * i, newSlots, SLOT_LONGS * index, SLOT_LONGS);
+                    newPeriods[index] = oldPeriods[i];
+                    newLastPeriods[index] = oldLastPeriods[i];
+                }
+            }
+
+            slots = newSlots;
+            periods = newPeriods;
+            lastPeriods = newLastPeriods;
+        }
+    }
+
+    /** Growable list of (high, low) key pairs. */
+    private static final class Bucket {
+
+        private long[] keys = new long[16];
+        private int length;
+
+        void add(final long high, final long low) {
+            if (length == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            keys[length++] = high;
+            keys[length++] = low;
+        }
+    }
+}
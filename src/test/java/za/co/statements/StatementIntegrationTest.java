@@ -2,29 +2,48 @@ package za.co.statements;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.junit.jupiter.api.Test;
+import za.co.statements.admission.DownloadAdmission;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 @ActiveProfiles("test")
 @EnableAutoConfiguration(exclude = {
         DataSourceAutoConfiguration.class,
@@ -35,6 +54,9 @@ class StatementIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private DownloadAdmission downloadAdmission;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Test
@@ -76,6 +98,326 @@ class StatementIntegrationTest {
                 );
     }
 
+    @Test
+    void testDownloadSupportsRangeAndETagRevalidation() throws Exception {
+        MockMultipartFile pdfFile = new MockMultipartFile(
+                "file",
+                "statement_456_2024_03.pdf",
+                MediaType.APPLICATION_PDF_VALUE,
+                "0123456789abcdef".getBytes()
+        );
+
+        mockMvc.perform(multipart("/api/statements/upload").file(pdfFile))
+                .andExpect(status().isOk());
+
+        String json = mockMvc.perform(get("/api/statements/456/2024/3/download-link"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String url = mapper.readTree(json).get("url").asText();
+
+        // ---- A month without a statement is a 404 with the usual error body ----
+        mockMvc.perform(get("/api/statements/456/2024/4/download-link"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Statement not found for customer 456 for period 2024-04"));
+
+        // ---- A month or year that cannot name a statement is a 400, not a 500 ----
+        mockMvc.perform(get("/api/statements/456/2024/13/download-link"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid month 13 in 2024/13"));
+        mockMvc.perform(get("/api/statements/456/20240/1/download-link"))
+                .andExpect(status().isBadRequest());
+
+        // ---- Full download carries length and ETag ----
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 16))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        // ---- Range request ----
+        mockMvc.perform(get(url).header("Range", "bytes=4-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 4-9/16"))
+                .andExpect(content().bytes("456789".getBytes()));
+
+        // ---- Revalidation ----
+        mockMvc.perform(get(url).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testBulkZipUploadReportsEveryEntry() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (String name : new String[]{"run/statement_777_2024_01.pdf", "statement_777_2024_02.pdf",
+                    "statement_777_2024_13.pdf", "readme.txt"}) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(("pdf " + name).getBytes());
+                zip.closeEntry();
+            }
+        }
+
+        mockMvc.perform(post("/api/statements/bulk")
+                        .contentType("application/zip")
+                        .content(archive.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(4))
+                .andExpect(jsonPath("$.stored").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.entries[0].status").value("STORED"))
+                .andExpect(jsonPath("$.entries[0].path").value("statements/777/2024-01.pdf"))
+                .andExpect(jsonPath("$.entries[2].status").value("REJECTED"))
+                .andExpect(jsonPath("$.entries[3].status").value("REJECTED"));
+
+        mockMvc.perform(get("/api/statements/777/2024/2/download-link"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRenderStoresPdfPerStatement() throws Exception {
+        String csv = """
+                customerId,period,customerName,date,description,amount
+                888,2024-01,Thandi Mokoena,2024-01-03,Salary,25000.00
+                888,2024-01,Thandi Mokoena,2024-01-09,"Groceries, Woolworths",-1432.50
+                888,2024-02,Thandi Mokoena,2024-02-03,Salary,25000.00
+                """;
+
+        mockMvc.perform(post("/api/statements/render").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.stored").value(2))
+                .andExpect(jsonPath("$.failed").value(0));
+
+        mockMvc.perform(post("/api/statements/render")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"customerId": 888, "period": "2024-03", "customerName": "Thandi Mokoena",
+                                  "lines": [{"date": "2024-03-03", "description": "Salary", "amount": 26000}]}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stored").value(1));
+
+        String url = mapper.readTree(mockMvc.perform(get("/api/statements/888/2024/1/download-link"))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString())
+                .get("url").asText();
+        byte[] pdf = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        PdfReader reader = new PdfReader(pdf);
+        String text = new PdfTextExtractor(reader).getTextFromPage(1);
+        reader.close();
+        assertThat(text).contains("Thandi Mokoena", "January 2024", "Groceries, Woolworths", "23567.50");
+
+        mockMvc.perform(get("/api/statements/888").param("limit", "10"))
+                .andExpect(jsonPath("$.statements.length()").value(3));
+
+        mockMvc.perform(post("/api/statements/render").contentType("text/csv").content("customerId,period\n1,2"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/statements/render")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"customerId": 0, "period": "2024-01", "customerName": "Nobody"},
+                                 {"customerId": -7, "period": "2024-01", "customerName": "Nobody"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stored").value(0))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.failures[0].status").value("FAILED"));
+    }
+
+    @Test
+    void testCursorListingWalksHistoryNewestFirst() throws Exception {
+        for (String name : new String[]{"statement_555_2024_01.pdf", "statement_555_2024_03.pdf",
+                "statement_555_2023_12.pdf"}) {
+            mockMvc.perform(multipart("/api/statements/upload")
+                            .file(new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE,
+                                    name.getBytes())))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/statements/555").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statements.length()").value(2))
+                .andExpect(jsonPath("$.statements[0].period").value("2024-03"))
+                .andExpect(jsonPath("$.statements[1].path").value("statements/555/2024-01.pdf"))
+                .andExpect(jsonPath("$.nextCursor").value("2024-01"));
+
+        mockMvc.perform(get("/api/statements/555").param("after", "2024-01").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statements.length()").value(1))
+                .andExpect(jsonPath("$.statements[0].period").value("2023-12"))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+
+        mockMvc.perform(get("/api/statements/555").param("after", "2024-13").param("limit", "2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testBatchDownloadLinksCoverRangeAndReportMissing() throws Exception {
+        for (String name : new String[]{"statement_556_2024_01.pdf", "statement_556_2024_03.pdf"}) {
+            mockMvc.perform(multipart("/api/statements/upload")
+                            .file(new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE,
+                                    name.getBytes())))
+                    .andExpect(status().isOk());
+        }
+
+        JsonNode links = mapper.readTree(mockMvc.perform(get("/api/statements/556/download-links")
+                        .param("from", "2023-12").param("to", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links.length()").value(2))
+                .andExpect(jsonPath("$.links[0].period").value("2024-03"))
+                .andExpect(jsonPath("$.links[1].period").value("2024-01"))
+                .andExpect(jsonPath("$.missing[0]").value("2024-02"))
+                .andExpect(jsonPath("$.missing[1]").value("2023-12"))
+                .andReturn().getResponse().getContentAsString());
+
+        mockMvc.perform(get(links.get("links").get(1).get("url").asText()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("statement_556_2024_01.pdf".getBytes()));
+
+        mockMvc.perform(get("/api/statements/556/download-links").param("periods", "2024-03,2022-05"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.links.length()").value(1))
+                .andExpect(jsonPath("$.missing[0]").value("2022-05"));
+
+        mockMvc.perform(get("/api/statements/556/download-links").param("from", "2024-03"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportStreamsStoredZipOfRange() throws Exception {
+        for (String name : new String[]{"statement_557_2023_11.pdf", "statement_557_2024_01.pdf",
+                "statement_557_2024_03.pdf"}) {
+            mockMvc.perform(multipart("/api/statements/upload")
+                            .file(new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE,
+                                    name.getBytes())))
+                    .andExpect(status().isOk());
+        }
+
+        JsonNode link = mapper.readTree(mockMvc.perform(get("/api/statements/557/export-link")
+                        .param("from", "2023-12").param("to", "2024-03"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        String url = link.get("url").asText();
+        assertThat(url).startsWith("/api/public/export/");
+
+        // Admitted once, with the statements counted in flight until the archive is complete
+        long admitted = downloadAdmission.admittedCount();
+        MvcResult started = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(downloadAdmission.inFlightBytes()).isEqualTo(
+                "statement_557_2024_01.pdf".length() + "statement_557_2024_03.pdf".length());
+        byte[] archive = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/zip"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=statements_557_2023-12_2024-03.zip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                assertThat(zip.readAllBytes()).isEqualTo(entry.getName().getBytes());
+                names.add(entry.getName());
+            }
+        }
+        assertThat(names).containsExactly("statement_557_2024_01.pdf", "statement_557_2024_03.pdf");
+        assertThat(downloadAdmission.admittedCount()).isEqualTo(admitted + 1);
+        assertThat(downloadAdmission.inFlightBytes()).isZero();
+
+        // A bad token fails before anything is streamed, and an empty range has nothing to export
+        mockMvc.perform(get("/api/public/export/" + url.substring(url.lastIndexOf('/') + 1) + "x"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/statements/557/export-link").param("from", "2022-01").param("to", "2022-12"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/statements/557/export-link").param("from", "2024-03").param("to", "2024-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/statements/557/export-link").param("from", "2016-01").param("to", "2024-05"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/statements/557/export-link").param("from", "2015-12").param("to", "2024-03"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testPublicDownloadsAreThrottledPerToken() throws Exception {
+        // Its own client address, so the per-client bucket shared by the other tests is untouched
+        RequestPostProcessor client = request -> {
+            request.setRemoteAddr("10.1.2.3");
+            return request;
+        };
+
+        // The burst of 10 goes through to token validation, then the token's bucket runs dry
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get("/api/public/download/replayed-token").with(client))
+                    .andExpect(status().isBadRequest());
+        }
+        MvcResult throttled = null;
+        for (int i = 0; i < 10 && throttled == null; i++) {
+            MvcResult result = mockMvc.perform(get("/api/public/download/replayed-token").with(client)).andReturn();
+            throttled = result.getResponse().getStatus() == 429 ? result : null;
+        }
+
+        assertThat(throttled).isNotNull();
+        assertThat(throttled.getResponse().getHeader("Retry-After")).isEqualTo("1");
+        assertThat(throttled.getResponse().getContentAsString()).contains("Too many downloads of this link");
+    }
+
+    @Test
+    void testStorageReportCountsDuplicateUploadsOnce() throws Exception {
+        byte[] pdf = "duplicate statement".getBytes();
+        for (String name : new String[]{"statement_801_2024_01.pdf", "statement_802_2024_01.pdf"}) {
+            mockMvc.perform(multipart("/api/statements/upload")
+                            .file(new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE, pdf)))
+                    .andExpect(status().isOk());
+        }
+
+        JsonNode report = mapper.readTree(mockMvc.perform(get("/api/admin/storage/report"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertThat(report.get("backend").asText()).isEqualTo("memory");
+        assertThat(report.get("logicalBytes").asLong() - report.get("uniqueBytes").asLong())
+                .isGreaterThanOrEqualTo(pdf.length);
+        assertThat(report.get("dedupRatio").asDouble()).isGreaterThan(1.0);
+
+        mockMvc.perform(get("/api/admin/storage/shards"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.maxBytes").isNumber())
+                .andExpect(jsonPath("$.residentBytes").isNumber())
+                .andExpect(jsonPath("$.shards[0].statements").isNumber());
+    }
+
+    @Test
+    void testPrometheusEndpointExposesStatementMetrics() throws Exception {
+        mockMvc.perform(get("/api/public/download/not-a-token"));
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("statement_download_seconds_bucket")
+                .contains("statement_token_validate_seconds_count")
+                .contains("statement_storage_statements")
+                .contains("statement_storage_logical_bytes")
+                .contains("statement_tokens_live")
+                .contains("statement_tokens_rejected_total{reason=\"invalid\"}")
+                .contains("statement_download_admitted_total")
+                .contains("statement_download_throttled_total{reason=\"token\"}")
+                .contains("statement_download_in_flight_bytes");
+    }
+
     @Test
     void testDownloadFailsForExpiredToken() throws Exception {
         MockMultipartFile pdfFile = new MockMultipartFile(
@@ -0,0 +1,45 @@
+package za.co.statements.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void admitsTheBurstThenRefillsAtTheRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 3, 64);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", 0)).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1", 0)).isEqualTo(SECOND / 2);
+        assertThat(limiter.tryAcquire("10.0.0.1", SECOND / 4)).isEqualTo(SECOND / 4);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", SECOND / 2)).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1", SECOND / 2)).isPositive();
+        // Idle for long enough, the bucket is full again but never holds more than the burst
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", 60 * SECOND)).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1", 60 * SECOND)).isPositive();
+    }
+
+    @Test
+    void keepsSeparateBucketsPerStripe() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 1_000);
+        assertThat(limiter.stripes()).isEqualTo(1024);
+
+        int admitted = 0;
+        for (int client = 0; client < 100; client++) {
+            if (limiter.tryAcquire("10.0.0." + client, 0) == 0) {
+                admitted++;
+            }
+        }
+        // Only clients hashed onto a stripe already used are held back, around 5 of 100 on 1024 stripes
+        assertThat(admitted).isGreaterThan(80);
+        assertThat(limiter.tryAcquire("10.0.0.1", 0)).isPositive();
+    }
+}
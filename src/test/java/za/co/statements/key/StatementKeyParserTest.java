@@ -0,0 +1,77 @@
+package za.co.statements.key;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import za.co.statements.exception.InvalidStatementKeyException;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementKeyParserTest {
+
+    @Test
+    void parsesFilenameWithAnySuffixAfterTheMonth() {
+        assertThat(StatementKeyParser.parseFilename("statement_123_2024_10.pdf"))
+                .isEqualTo(StatementKey.of(123, 2024, 10));
+        assertThat(StatementKeyParser.parseFilename("statement_42_2023_1 (1).pdf").yearMonth())
+                .isEqualTo(YearMonth.of(2023, 1));
+        assertThat(StatementKeyParser.parseFilename("statement_999999999999999999_2024_07").customerId())
+                .isEqualTo(999_999_999_999_999_999L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "readme.txt", "statement_.pdf", "statement_1_24_10.pdf", "statement_1_20244_10.pdf",
+            "statement_1_2024_.pdf", "statement_1_2024_100.pdf", "statement_x_2024_10.pdf",
+            "Statement_1_2024_10.pdf", "statement_1234567890123456789_2024_10.pdf"
+    })
+    void rejectsMalformedFilenames(final String filename) {
+        assertThatThrownBy(() -> StatementKeyParser.parseFilename(filename))
+                .isInstanceOf(InvalidStatementKeyException.class);
+    }
+
+    @Test
+    void rejectsMonthsOutsideTheYear() {
+        assertThatThrownBy(() -> StatementKeyParser.parseFilename("statement_777_2024_13.pdf"))
+                .hasMessage("Invalid month 13 in statement_777_2024_13.pdf");
+        assertThatThrownBy(() -> StatementKeyParser.parseFilename("statement_777_2024_0.pdf"))
+                .isInstanceOf(InvalidStatementKeyException.class);
+    }
+
+    @Test
+    void parsesStoragePaths() {
+        assertThat(StatementKeyParser.parsePath("statements/777/2024-01.pdf"))
+                .isEqualTo(StatementKey.of(777, 2024, 1));
+    }
+
+    @Test
+    void parsesListingCursorPeriods() {
+        assertThat(StatementKeyParser.parsePeriod("2024-03")).isEqualTo(202403);
+        assertThatThrownBy(() -> StatementKeyParser.parsePeriod("2024-3"))
+                .isInstanceOf(InvalidStatementKeyException.class);
+        assertThatThrownBy(() -> StatementKeyParser.parsePeriod("2024-00"))
+                .isInstanceOf(InvalidStatementKeyException.class);
+    }
+
+    @Test
+    void rendersPathsThatParseBack() {
+        StatementKey key = StatementKey.of(42, YearMonth.of(987, 3));
+
+        assertThat(key.path()).isEqualTo("statements/42/0987-03.pdf");
+        assertThat(StatementKeyParser.parsePath(key.path())).isEqualTo(key);
+        assertThat(StatementKey.of(42, 2024, 11).path()).isEqualTo("statements/42/2024-11.pdf");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "statements/777/2024-1.pdf", "statements//2024-01.pdf", "statements/777/2024-01.pdfx",
+            "statements/777/2024-13.pdf", "statements/777/2024_01.pdf", "other/777/2024-01.pdf"
+    })
+    void rejectsMalformedPaths(final String path) {
+        assertThatThrownBy(() -> StatementKeyParser.parsePath(path))
+                .isInstanceOf(InvalidStatementKeyException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package za.co.statements.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSummaryTest {
+
+    private final Logger log = (Logger) LoggerFactory.getLogger(LogSummaryTest.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void attach() {
+        appender.start();
+        log.addAppender(appender);
+        log.setLevel(ch.qos.logback.classic.Level.INFO);
+    }
+
+    @AfterEach
+    void detach() {
+        log.detachAppender(appender);
+        log.setLevel(null);
+    }
+
+    @Test
+    void countsEventsAndLogsOnceTheIntervalHasPassed() throws InterruptedException {
+        LogSummary summary = new LogSummary(log, Level.WARN, "Saw {} events in {} s", Duration.ofMillis(200));
+
+        summary.record();
+        summary.record();
+        summary.record();
+        assertThat(appender.list).isEmpty();
+
+        Thread.sleep(250);
+        summary.record();
+        assertThat(appender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(ch.qos.logback.classic.Level.WARN);
+            assertThat(event.getFormattedMessage()).isEqualTo("Saw 4 events in 0 s");
+        });
+
+        summary.record();
+        assertThat(appender.list).hasSize(1);
+    }
+
+    @Test
+    void startsANewCountWithEachInterval() {
+        LogSummary summary = new LogSummary(log, Level.INFO, "Saw {} events in {} s", Duration.ZERO);
+
+        summary.record();
+        summary.record();
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("Saw 1 events in 0 s", "Saw 1 events in 0 s");
+        assertThat(appender.list).extracting(ILoggingEvent::getLevel)
+                .containsOnly(ch.qos.logback.classic.Level.INFO);
+    }
+}
@@ -0,0 +1,25 @@
+package za.co.statements.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedactedTokenTest {
+
+    private static final String TOKEN = "8c1f2e0a-6b7d-4e1f-9a3c-2d5e8f0b1a47";
+
+    @Test
+    void rendersAFingerprintInsteadOfTheToken() {
+        String rendered = RedactedToken.of(TOKEN).toString();
+
+        assertThat(rendered).matches("tok:[0-9a-f]{12}").doesNotContain(TOKEN);
+        assertThat(TOKEN).doesNotContain(rendered.substring("tok:".length()));
+        assertThat(RedactedToken.of(null)).hasToString("tok:null");
+    }
+
+    @Test
+    void fingerprintIsStablePerToken() {
+        assertThat(RedactedToken.of(TOKEN).toString()).isEqualTo(RedactedToken.of(TOKEN).toString());
+        assertThat(RedactedToken.of(TOKEN).toString()).isNotEqualTo(RedactedToken.of(TOKEN + "x").toString());
+    }
+}
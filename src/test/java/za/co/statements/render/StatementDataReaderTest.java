@@ -0,0 +1,93 @@
+package za.co.statements.render;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import za.co.statements.exception.InvalidStatementKeyException;
+import za.co.statements.key.StatementKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementDataReaderTest {
+
+    @Test
+    void groupsConsecutiveCsvLinesIntoStatements() {
+        List<StatementData> statements = readAll(StatementDataReader.csv(input("""
+                customerId,period,customerName,date,description,amount
+                1,2024-01,"Dlamini, S",2024-01-02,Salary,100.00
+
+                1,2024-01,"Dlamini, S",2024-01-05,"Shop \"\"A\"\"",-20.5
+                2,2024-01,Naidoo,2024-01-07,Fee,-5
+                """)));
+
+        assertThat(statements).hasSize(2);
+        StatementData first = statements.get(0);
+        assertThat(first.period()).isEqualTo(YearMonth.of(2024, 1));
+        assertThat(first.customerName()).isEqualTo("Dlamini, S");
+        assertThat(first.lines()).extracting(StatementLine::description).containsExactly("Salary", "Shop \"A\"");
+        assertThat(first.lines().get(1).amount()).isEqualByComparingTo(new BigDecimal("-20.5"));
+        assertThat(statements.get(1).customerId()).isEqualTo(2);
+    }
+
+    @Test
+    void reportsLineOfMalformedCsv() {
+        Iterator<StatementData> statements = StatementDataReader.csv(input("""
+                customerId,period,customerName,date,description,amount
+                1,2024-01,A,2024-01-02,Salary,100.00
+                1,2024-13,A,2024-01-05,Shop,-20
+                """));
+
+        assertThatThrownBy(() -> readAll(statements))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 3");
+    }
+
+    @Test
+    void readsJsonArray() throws IOException {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        List<StatementData> statements = readAll(StatementDataReader.json(mapper, input("""
+                [{"customerId": 1, "period": "2024-02", "lines": [
+                    {"date": "2024-02-01", "description": "Salary", "amount": 100}]},
+                 {"customerId": 2, "period": "2024-02"}]
+                """)));
+
+        assertThat(statements).extracting(StatementData::key).extracting(StatementKey::filename)
+                .containsExactly("statement_1_2024_02.pdf", "statement_2_2024_02.pdf");
+        assertThat(statements.get(1).lines()).isEmpty();
+
+        assertThatThrownBy(() -> readAll(StatementDataReader.json(mapper, input("[{\"customerId\": 1}]"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keysAreCheckedLikeParsedFilenames() {
+        YearMonth period = YearMonth.of(2024, 1);
+        assertThat(new StatementData(7, period, "A", null).key()).isEqualTo(StatementKey.of(7, period));
+        assertThatThrownBy(() -> new StatementData(0, period, "A", null).key())
+                .isInstanceOf(InvalidStatementKeyException.class);
+        assertThatThrownBy(() -> new StatementData(-7, period, "A", null).key())
+                .isInstanceOf(InvalidStatementKeyException.class);
+        assertThatThrownBy(() -> new StatementData(7, YearMonth.of(20240, 1), "A", null).key())
+                .isInstanceOf(InvalidStatementKeyException.class);
+        assertThat(new StatementData(-7, period, "A", null).filename()).isEqualTo("statement_-7_2024_01.pdf");
+    }
+
+    private static List<StatementData> readAll(final Iterator<StatementData> statements) {
+        List<StatementData> all = new ArrayList<>();
+        statements.forEachRemaining(all::add);
+        return all;
+    }
+
+    private static InputStream input(final String text) {
+        return new ByteArrayInputStream(text.getBytes());
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import za.co.statements.dto.response.DownloadLinkResponse;
+import za.co.statements.key.StatementKey;
 import za.co.statements.service.StatementService;
 import za.co.statements.service.StorageService;
 import za.co.statements.token.DownloadTokenStore;
@@ -19,7 +20,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,7 +48,7 @@ class StatementServiceTest {
         service.saveStatement(customerId, period, pdfBytes);
 
         // Ensure StorageService.exists returns true (if mocked)
-        when(storageService.exists(anyString())).thenReturn(true);
+        when(storageService.exists(any(StatementKey.class))).thenReturn(true);
 
         DownloadLinkResponse response = service.createDownloadLink(customerId, period);
 
@@ -0,0 +1,118 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import za.co.statements.service.StoredMetadata;
+import za.co.statements.service.StoredObject;
+import za.co.statements.key.StatementKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingStorageServiceTest {
+
+    private final AtomicInteger backendReads = new AtomicInteger();
+    private final Set<Thread> readers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final InMemoryStorageService backend = new InMemoryStorageService() {
+        @Override
+        public byte[] read(final StatementKey key) {
+            backendReads.incrementAndGet();
+            readers.add(Thread.currentThread());
+            return super.read(key);
+        }
+    };
+
+    @AfterEach
+    void shutDownLoader() {
+        loader.shutdownNow();
+    }
+
+    @Test
+    void repeatedDownloadsAreServedFromCache() throws Exception {
+        CachingStorageService store = new CachingStorageService(backend, 1024 * 1024, false, loader);
+        store.upload(StatementKey.of(1, 2024, 1), bytes("january"));
+
+        StoredObject first = store.open(StatementKey.of(1, 2024, 1));
+        StoredObject second = store.open(StatementKey.of(1, 2024, 1));
+
+        assertThat(backendReads).hasValue(1);
+        assertThat(readers).doesNotContain(Thread.currentThread());
+        assertThat(second.content().getContentAsByteArray()).isEqualTo(bytes("january"));
+        assertThat(second.etag()).isEqualTo(first.etag()).isEqualTo(backend.open(StatementKey.of(1, 2024, 1)).etag());
+        assertThat(store.cache().stats().hitCount()).isEqualTo(1);
+        assertThat(store.open(StatementKey.of(9, 2024, 1))).isNull();
+    }
+
+    @Test
+    void metadataIsAnsweredWithoutLoadingContent() {
+        CachingStorageService store = new CachingStorageService(backend, 1024 * 1024, false, loader);
+        store.upload(StatementKey.of(1, 2024, 1), bytes("january"));
+
+        StoredMetadata metadata = store.metadata(StatementKey.of(1, 2024, 1));
+
+        assertThat(metadata.size()).isEqualTo(bytes("january").length);
+        assertThat(metadata.crc()).isEqualTo(backend.open(StatementKey.of(1, 2024, 1)).crc());
+        assertThat(store.metadata(StatementKey.of(9, 2024, 1))).isNull();
+        assertThat(backendReads).hasValue(0);
+        assertThat(store.cache().asMap()).isEmpty();
+    }
+
+    @Test
+    void overwriteInvalidatesTheCachedCopy() {
+        CachingStorageService store = new CachingStorageService(backend, 1024 * 1024, false, loader);
+        store.upload(StatementKey.of(1, 2024, 1), bytes("january"));
+        assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo(bytes("january"));
+
+        store.upload(StatementKey.of(1, 2024, 1), bytes("january corrected"));
+
+        assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo(bytes("january corrected"));
+    }
+
+    @Test
+    void prewarmsOnlyTheNewestPeriodInTheBackgroundAndStaysWithinBudget() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        CachingStorageService store = new CachingStorageService(backend, 64 * 1024, true, pending::add);
+
+        store.upload(StatementKey.of(1, 2024, 2), bytes("february"));
+        store.upload(StatementKey.of(1, 2024, 1), bytes("january, uploaded late"));
+        store.upload(StatementKey.of(2, 2024, 2), bytes("february too"));
+
+        // Uploads only queue the loads
+        assertThat(backendReads).hasValue(0);
+        runAll(pending);
+        store.cache().cleanUp();
+
+        assertThat(store.cache().asMap())
+                .containsOnlyKeys(StatementKey.of(1, 2024, 2), StatementKey.of(2, 2024, 2));
+
+        byte[] large = new byte[8 * 1024];
+        for (int i = 0; i < 64; i++) {
+            store.upload(StatementKey.of(i, 2024, 3), large);
+        }
+        runAll(pending);
+        store.cache().cleanUp();
+
+        assertThat(store.cachedBytes()).isLessThanOrEqualTo(64 * 1024);
+    }
+
+    private static void runAll(final Queue<Runnable> pending) {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
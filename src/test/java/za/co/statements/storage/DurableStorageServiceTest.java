@@ -0,0 +1,183 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.statements.exception.StorageCapacityExceededException;
+import za.co.statements.key.StatementKey;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DurableStorageServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysLogAfterRestart() throws IOException {
+        try (DurableStorageService store = open()) {
+            store.upload(StatementKey.of(1, 2024, 1), "january".getBytes());
+            store.upload(StatementKey.of(1, 2024, 2), "february".getBytes());
+            store.upload(StatementKey.of(1, 2024, 1), "january v2".getBytes());
+        }
+
+        try (DurableStorageService store = open()) {
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("january v2".getBytes());
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("february".getBytes());
+            assertThat(store.listDescending(1, 0, 10))
+                    .containsExactly(StatementKey.of(1, 2024, 2), StatementKey.of(1, 2024, 1));
+        }
+    }
+
+    @Test
+    void recoversFromSnapshotAndLogTail() throws IOException {
+        try (DurableStorageService store = open()) {
+            for (int customer = 0; customer < 100; customer++) {
+                store.upload(StatementKey.of(customer, 2024, 1), ("statement " + customer).getBytes());
+            }
+            store.checkpoint();
+            store.upload(StatementKey.of(7, 2024, 1), "overwritten after snapshot".getBytes());
+            store.upload(StatementKey.of(500, 2024, 2), "after snapshot".getBytes());
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("snapshot-00000002", "log-00000002.wal");
+        }
+
+        try (DurableStorageService store = open()) {
+            assertThat(store.stats().statements()).isEqualTo(101);
+            assertThat(store.read(StatementKey.of(3, 2024, 1))).isEqualTo("statement 3".getBytes());
+            assertThat(store.read(StatementKey.of(7, 2024, 1))).isEqualTo("overwritten after snapshot".getBytes());
+            assertThat(store.read(StatementKey.of(500, 2024, 2))).isEqualTo("after snapshot".getBytes());
+        }
+    }
+
+    @Test
+    void dropsTornRecordAtTail() throws IOException {
+        try (DurableStorageService store = open()) {
+            store.upload(StatementKey.of(1, 2024, 1), "complete".getBytes());
+        }
+        Path log = directory.resolve("log-00000001.wal");
+        long validSize = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        try (DurableStorageService store = open()) {
+            assertThat(Files.size(log)).isEqualTo(validSize);
+            store.upload(StatementKey.of(1, 2024, 2), "after restart".getBytes());
+        }
+
+        try (DurableStorageService store = open()) {
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("complete".getBytes());
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("after restart".getBytes());
+        }
+    }
+
+    @Test
+    void concurrentUploadsShareForces() throws IOException {
+        ExecutorService uploaders = Executors.newFixedThreadPool(16);
+        try (DurableStorageService store = open()) {
+            List<CompletableFuture<Void>> uploads = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                StatementKey key = StatementKey.of(i, 2024, 1);
+                uploads.add(CompletableFuture.runAsync(() -> store.upload(key, new byte[256]), uploaders));
+            }
+            uploads.forEach(CompletableFuture::join);
+
+            assertThat(store.stats().statements()).isEqualTo(2_000);
+            assertThat(store.syncCount()).isLessThan(2_000);
+        } finally {
+            uploaders.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentUploadsOfOneKeyReplayToWhatWasServed() throws IOException {
+        StatementKey key = StatementKey.of(1, 2024, 1);
+        ExecutorService uploaders = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                byte[] served;
+                try (DurableStorageService store = open()) {
+                    List<CompletableFuture<Void>> uploads = new ArrayList<>();
+                    for (int i = 0; i < 64; i++) {
+                        byte[] content = ("round " + round + " upload " + i).getBytes();
+                        uploads.add(CompletableFuture.runAsync(() -> store.upload(key, content), uploaders));
+                    }
+                    uploads.forEach(CompletableFuture::join);
+                    served = store.read(key);
+                }
+
+                try (DurableStorageService store = open()) {
+                    assertThat(store.read(key)).as("round %d", round).isEqualTo(served);
+                }
+            }
+        } finally {
+            uploaders.shutdown();
+        }
+    }
+
+    @Test
+    void refusedUploadIsNotLogged() throws IOException {
+        try (DurableStorageService store = new DurableStorageService(
+                new InMemoryStorageService(false, 4, 1_000, Long.MAX_VALUE), directory, true, 4)) {
+            store.upload(StatementKey.of(1, 2024, 1), new byte[800]);
+            assertThatThrownBy(() -> store.upload(StatementKey.of(2, 2024, 1), new byte[800]))
+                    .isInstanceOf(StorageCapacityExceededException.class);
+        }
+
+        try (DurableStorageService store = open()) {
+            assertThat(store.exists(StatementKey.of(1, 2024, 1))).isTrue();
+            assertThat(store.exists(StatementKey.of(2, 2024, 1))).isFalse();
+        }
+    }
+
+    @Test
+    void concurrentUploadsNeverOvershootTheLimit() throws IOException {
+        ExecutorService uploaders = Executors.newFixedThreadPool(16);
+        try (DurableStorageService store = new DurableStorageService(
+                new InMemoryStorageService(false, 1, 5_000, Long.MAX_VALUE), directory, false, 4)) {
+            List<CompletableFuture<Boolean>> uploads = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                StatementKey key = StatementKey.of(i, 2024, 1);
+                uploads.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        store.upload(key, new byte[100]);
+                        return true;
+                    } catch (StorageCapacityExceededException e) {
+                        return false;
+                    }
+                }, uploaders));
+            }
+            long stored = uploads.stream().filter(CompletableFuture::join).count();
+
+            assertThat(stored).isEqualTo(50);
+            assertThat(store.capacity().residentBytes()).isEqualTo(5_000);
+
+            // A failed append gives its reservation back
+            store.upload(StatementKey.of(0, 2024, 1), new byte[10]);
+            store.close();
+            assertThatThrownBy(() -> store.upload(StatementKey.of(1_000, 2024, 1), new byte[50]))
+                    .isInstanceOf(UncheckedIOException.class);
+            assertThat(store.capacity().residentBytes()).isEqualTo(4_910);
+        } finally {
+            uploaders.shutdown();
+        }
+    }
+
+    private DurableStorageService open() {
+        return new DurableStorageService(new InMemoryStorageService(), directory, true, 4);
+    }
+}
@@ -0,0 +1,97 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.Test;
+import za.co.statements.exception.StorageCapacityExceededException;
+import za.co.statements.service.StorageCapacity;
+import za.co.statements.service.StorageStats;
+import za.co.statements.key.StatementKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryStorageServiceTest {
+
+    @Test
+    void identicalContentIsStoredOnceAndReleasedOnOverwrite() {
+        InMemoryStorageService store = new InMemoryStorageService();
+        byte[] pdf = "identical statement".getBytes(StandardCharsets.UTF_8);
+
+        store.upload(StatementKey.of(1, 2024, 1), pdf);
+        store.upload(StatementKey.of(1, 2024, 1), pdf.clone());
+        store.upload(StatementKey.of(2, 2024, 1), pdf.clone());
+
+        StorageStats stats = store.stats();
+        assertThat(stats.statements()).isEqualTo(2);
+        assertThat(stats.logicalBytes()).isEqualTo(2L * pdf.length);
+        assertThat(stats.uniqueBlobs()).isEqualTo(1);
+        assertThat(stats.uniqueBytes()).isEqualTo(pdf.length);
+
+        store.upload(StatementKey.of(1, 2024, 1), "corrected statement".getBytes(StandardCharsets.UTF_8));
+        store.upload(StatementKey.of(2, 2024, 1), "corrected statement".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(store.stats().uniqueBlobs()).isEqualTo(1);
+        assertThat(store.read(StatementKey.of(2, 2024, 1))).isEqualTo("corrected statement".getBytes());
+    }
+
+    @Test
+    void compressesOnlyContentThatShrinks() {
+        InMemoryStorageService store = new InMemoryStorageService(true);
+        byte[] text = "Opening balance 1000.00 Closing balance 1000.00\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+        byte[] noise = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(noise);
+
+        store.upload(StatementKey.of(1, 2024, 1), text);
+        store.upload(StatementKey.of(1, 2024, 2), noise);
+
+        assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo(text);
+        assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo(noise);
+        assertThat(store.open(StatementKey.of(1, 2024, 1)).size()).isEqualTo(text.length);
+
+        StorageStats stats = store.stats();
+        assertThat(stats.uniqueBytes()).isEqualTo(text.length + noise.length);
+        assertThat(stats.storedBytes()).isLessThan(text.length / 4 + noise.length);
+    }
+
+    @Test
+    void refusesUploadsPastTheShardLimitButAllowsSameSizeOverwrites() {
+        InMemoryStorageService store = new InMemoryStorageService(false, 4, Long.MAX_VALUE, 1_000);
+
+        store.upload(StatementKey.of(1, 2024, 1), new byte[600]);
+        assertThatThrownBy(() -> store.upload(StatementKey.of(1, 2024, 2), new byte[600]))
+                .isInstanceOf(StorageCapacityExceededException.class);
+
+        assertThat(store.exists(StatementKey.of(1, 2024, 2))).isFalse();
+        assertThat(store.list(1)).containsExactly(StatementKey.of(1, 2024, 1));
+
+        store.upload(StatementKey.of(1, 2024, 1), new byte[900]);
+        store.upload(StatementKey.of(1, 2024, 2), new byte[100]);
+
+        StorageCapacity capacity = store.capacity();
+        assertThat(capacity.residentBytes()).isEqualTo(1_000);
+        assertThat(capacity.rejectedUploads()).isEqualTo(1);
+        assertThat(store.stats().uniqueBlobs()).isEqualTo(2);
+    }
+
+    @Test
+    void splitsCustomersOverShardsWithinTheTotalLimit() {
+        InMemoryStorageService store = new InMemoryStorageService(false, 3, 10_000, Long.MAX_VALUE);
+
+        for (int customer = 0; customer < 100; customer++) {
+            store.upload(StatementKey.of(customer, 2024, 1), ("statement " + customer).getBytes());
+            store.upload(StatementKey.of(customer, 2024, 2), ("statement " + customer + "b").getBytes());
+        }
+        assertThatThrownBy(() -> store.upload(StatementKey.of(500, 2024, 1), new byte[10_000]))
+                .isInstanceOf(StorageCapacityExceededException.class);
+
+        StorageCapacity capacity = store.capacity();
+        assertThat(capacity.shards()).hasSize(4);
+        assertThat(capacity.shards()).allSatisfy(shard -> assertThat(shard.statements()).isPositive().isEven());
+        assertThat(capacity.shards().stream().mapToLong(StorageCapacity.Shard::statements).sum()).isEqualTo(200);
+        assertThat(capacity.shards().stream().mapToLong(StorageCapacity.Shard::residentBytes).sum())
+                .isEqualTo(capacity.residentBytes())
+                .isEqualTo(store.stats().logicalBytes());
+    }
+}
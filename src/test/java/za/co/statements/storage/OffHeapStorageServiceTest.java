@@ -0,0 +1,81 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.Test;
+import za.co.statements.exception.StorageCapacityExceededException;
+import za.co.statements.key.StatementKey;
+import za.co.statements.service.StoredObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapStorageServiceTest {
+
+    @Test
+    void servesStatementsAsViewsOfTheSlab() throws IOException {
+        OffHeapStorageService store = new OffHeapStorageService(1_000, Long.MAX_VALUE, 0.5);
+        store.upload(StatementKey.of(1, 2024, 1), "january".getBytes());
+        store.upload(StatementKey.of(1, 2024, 2), new ByteArrayInputStream("february".getBytes()), 8);
+        store.upload(StatementKey.of(1, 2024, 1), "january v2".getBytes());
+
+        assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("january v2".getBytes());
+        StoredObject february = store.open(StatementKey.of(1, 2024, 2));
+        assertThat(february.content()).isInstanceOf(ByteBufferResource.class);
+        try (InputStream content = february.content().getInputStream()) {
+            assertThat(content.readAllBytes()).isEqualTo("february".getBytes());
+        }
+        assertThat(store.listDescending(1, 0, 10))
+                .containsExactly(StatementKey.of(1, 2024, 2), StatementKey.of(1, 2024, 1));
+        assertThat(store.stats().logicalBytes()).isEqualTo(18);
+        assertThat(store.stats().storedBytes()).isEqualTo(1_000);
+    }
+
+    @Test
+    void compactionMovesLiveStatementsAndDropsEmptiedSlabs() {
+        OffHeapStorageService store = new OffHeapStorageService(1_000, Long.MAX_VALUE, 0.5);
+        for (int customer = 0; customer < 9; customer++) {
+            store.upload(StatementKey.of(customer, 2024, 1), content(customer, 300));
+        }
+        // Three statements per slab; overwriting most of them leaves the first three slabs mostly dead
+        for (int customer = 1; customer < 9; customer++) {
+            store.upload(StatementKey.of(customer, 2024, 1), content(customer + 100, 300));
+        }
+        assertThat(store.slabCount()).isEqualTo(6);
+
+        store.compact();
+
+        assertThat(store.slabCount()).isLessThan(6);
+        assertThat(store.capacity().residentBytes()).isEqualTo(store.slabCount() * 1_000L);
+        assertThat(store.read(StatementKey.of(0, 2024, 1))).isEqualTo(content(0, 300));
+        for (int customer = 1; customer < 9; customer++) {
+            assertThat(store.read(StatementKey.of(customer, 2024, 1))).isEqualTo(content(customer + 100, 300));
+        }
+    }
+
+    @Test
+    void refusesUploadsPastTheLimitAndDiscardsIncompleteOnes() {
+        OffHeapStorageService store = new OffHeapStorageService(1_000, 2_000, 0.5);
+        store.upload(StatementKey.of(1, 2024, 1), new byte[900]);
+        store.upload(StatementKey.of(2, 2024, 1), new byte[900]);
+
+        assertThatThrownBy(() -> store.upload(StatementKey.of(3, 2024, 1), new byte[900]))
+                .isInstanceOf(StorageCapacityExceededException.class);
+        assertThatThrownBy(() -> store.upload(StatementKey.of(4, 2024, 1), new ByteArrayInputStream(new byte[10]), 50))
+                .isInstanceOf(IOException.class);
+
+        assertThat(store.exists(StatementKey.of(3, 2024, 1))).isFalse();
+        assertThat(store.exists(StatementKey.of(4, 2024, 1))).isFalse();
+        assertThat(store.capacity().rejectedUploads()).isEqualTo(1);
+        assertThat(store.stats().statements()).isEqualTo(2);
+    }
+
+    private static byte[] content(final int seed, final int length) {
+        byte[] content = new byte[length];
+        Arrays.fill(content, (byte) seed);
+        return content;
+    }
+}
@@ -0,0 +1,158 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.statements.key.StatementKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentStorageServiceTest {
+
+    @TempDir
+    Path basePath;
+
+    @Test
+    void rebuildsIndexFromSegmentsOnRestart() throws IOException {
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 64)) {
+            store.upload(StatementKey.of(1, 2024, 1), "january".getBytes());
+            store.upload(StatementKey.of(1, 2024, 2), "february-statement-bytes".getBytes());
+            store.upload(StatementKey.of(2, 2024, 1), "other customer".getBytes());
+            store.upload(StatementKey.of(1, 2024, 1), "january v2".getBytes());
+        }
+
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 64)) {
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("january v2".getBytes());
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("february-statement-bytes".getBytes());
+            assertThat(store.count(1)).isEqualTo(2);
+            assertThat(store.listDescending(1, 0, 10))
+                    .containsExactly(StatementKey.of(1, 2024, 2), StatementKey.of(1, 2024, 1));
+            assertThat(store.exists(StatementKey.of(3, 2024, 1))).isFalse();
+        }
+    }
+
+    @Test
+    void truncatesTornRecordAtTail() throws IOException {
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            store.upload(StatementKey.of(1, 2024, 1), "complete".getBytes());
+        }
+
+        Path segment = segmentFiles().get(0);
+        long validSize = Files.size(segment);
+        Files.write(segment, new byte[]{0x53, 0x54, 0x4D}, StandardOpenOption.APPEND);
+
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("complete".getBytes());
+            store.upload(StatementKey.of(1, 2024, 2), "after restart".getBytes());
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("after restart".getBytes());
+        }
+
+        assertThat(Files.size(segment)).isGreaterThan(validSize);
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            assertThat(store.count(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void skipsCommittedRecordsWhoseContentFailsTheChecksum() throws IOException {
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            store.upload(StatementKey.of(1, 2024, 1), "january".getBytes());
+            store.upload(StatementKey.of(1, 2024, 1), "january v2".getBytes());
+            store.upload(StatementKey.of(1, 2024, 2), "february".getBytes());
+        }
+
+        // A crash persisted the magic of the overwrite but not its content
+        Path segment = segmentFiles().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int overwrite = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("january v2");
+        bytes[overwrite] = 0;
+        Files.write(segment, bytes);
+
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("january".getBytes());
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("february".getBytes());
+        }
+    }
+
+    @Test
+    void fullSegmentIsSealedOnlyOnceUploadsIntoItHaveFinished() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            private final InputStream content = new ByteArrayInputStream("slow upload".getBytes());
+
+            @Override
+            public int read() throws IOException {
+                return content.read();
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                streaming.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return content.read(buffer, offset, length);
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 100)) {
+            Future<?> upload = executor.submit(() -> {
+                store.upload(StatementKey.of(1, 2024, 1), slow, "slow upload".length());
+                return null;
+            });
+            streaming.await();
+
+            store.upload(StatementKey.of(1, 2024, 2), new byte[70]);
+            assertThat(segmentFiles()).hasSize(2);
+            assertThat(store.sealedSegments()).isZero();
+
+            release.countDown();
+            upload.get();
+            assertThat(store.sealedSegments()).isEqualTo(1);
+            assertThat(store.read(StatementKey.of(1, 2024, 1))).isEqualTo("slow upload".getBytes());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedUploadIsNeverVisible() throws IOException {
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            InputStream shortStream = new ByteArrayInputStream("only part".getBytes());
+
+            assertThatThrownBy(() -> store.upload(StatementKey.of(1, 2024, 1), shortStream, 100))
+                    .isInstanceOf(IOException.class);
+            assertThat(store.exists(StatementKey.of(1, 2024, 1))).isFalse();
+
+            store.upload(StatementKey.of(1, 2024, 2), "next upload".getBytes());
+        }
+
+        try (SegmentStorageService store = new SegmentStorageService(basePath, 1024)) {
+            assertThat(store.exists(StatementKey.of(1, 2024, 1))).isFalse();
+            assertThat(store.read(StatementKey.of(1, 2024, 2))).isEqualTo("next upload".getBytes());
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (var files = Files.list(basePath.resolve("segments"))) {
+            return files.sorted().toList();
+        }
+    }
+}
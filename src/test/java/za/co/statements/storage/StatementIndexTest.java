@@ -0,0 +1,39 @@
+package za.co.statements.storage;
+
+import org.junit.jupiter.api.Test;
+import za.co.statements.key.StatementKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementIndexTest {
+
+    @Test
+    void answersContainsFromTheMonthBitmap() {
+        StatementIndex index = new StatementIndex();
+        index.add(StatementKey.of(1, 2023, 12));
+        index.add(StatementKey.of(1, 2024, 2));
+        index.add(StatementKey.of(1, 2018, 1));
+
+        assertThat(index.contains(StatementKey.of(1, 2023, 12))).isTrue();
+        assertThat(index.contains(StatementKey.of(1, 2024, 2))).isTrue();
+        assertThat(index.contains(StatementKey.of(1, 2018, 1))).isTrue();
+        assertThat(index.contains(StatementKey.of(1, 2024, 1))).isFalse();
+        assertThat(index.contains(StatementKey.of(1, 2017, 12))).isFalse();
+        assertThat(index.contains(StatementKey.of(1, 2024, 3))).isFalse();
+        assertThat(index.contains(StatementKey.of(2, 2024, 2))).isFalse();
+        assertThat(index.list(1)).containsExactly(StatementKey.of(1, 2018, 1), StatementKey.of(1, 2023, 12),
+                StatementKey.of(1, 2024, 2));
+    }
+
+    @Test
+    void fallsBackToSearchingPeriodsSpanningTooManyMonths() {
+        StatementIndex index = new StatementIndex();
+        index.add(StatementKey.of(1, 1900, 1));
+        index.add(StatementKey.of(1, 2024, 6));
+
+        assertThat(index.contains(StatementKey.of(1, 1900, 1))).isTrue();
+        assertThat(index.contains(StatementKey.of(1, 2024, 6))).isTrue();
+        assertThat(index.contains(StatementKey.of(1, 2000, 1))).isFalse();
+        assertThat(index.count(1)).isEqualTo(2);
+    }
+}
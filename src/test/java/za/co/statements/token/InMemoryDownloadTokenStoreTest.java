@@ -0,0 +1,130 @@
+package za.co.statements.token;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryDownloadTokenStoreTest {
+
+    private final InMemoryDownloadTokenStore store = new InMemoryDownloadTokenStore();
+
+    @Test
+    void tokenRoundTripsThroughUuidLayout() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+
+        assertThat(token).matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+        long high = InMemoryDownloadTokenStore.parseHigh(token);
+        long low = InMemoryDownloadTokenStore.parseLow(token);
+        assertThat(InMemoryDownloadTokenStore.format(high, low)).isEqualTo(token);
+        assertThat(store.validateToken(token)).isEqualTo(StatementKey.of(1, 2024, 1));
+        assertThat(store.validateToken(token.toUpperCase())).isEqualTo(StatementKey.of(1, 2024, 1));
+    }
+
+    @Test
+    void rejectsMalformedUnknownAndExpiredTokens() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+
+        assertThat(store.validateToken(null)).isNull();
+        assertThat(store.validateToken("not-a-token")).isNull();
+        assertThat(store.validateToken("00000000-0000-0000-0000-000000000001")).isNull();
+
+        store.forceExpireToken(token);
+        assertThat(store.validateToken(token)).isNull();
+        assertThat(store.liveTokenCount()).isZero();
+        assertThat(store.invalidTokenHits()).isEqualTo(3);
+        assertThat(store.expiredTokenHits()).isEqualTo(1);
+    }
+
+    @Test
+    void purgeRemovesOnlyExpiredTokens() {
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            live.add(store.generateToken(StatementKey.of(i, 2024, 1), Duration.ofMinutes(5)));
+            store.generateToken(StatementKey.of(i, 2024, 2), Duration.ZERO);
+        }
+
+        store.forceExpireToken(live.remove(live.size() - 1));
+        store.purgeExpired();
+
+        assertThat(store.liveTokenCount()).isEqualTo(999);
+        assertThat(store.purgedTokenCount()).isEqualTo(1_001);
+        for (int i = 0; i < live.size(); i++) {
+            assertThat(store.validateToken(live.get(i))).isEqualTo(StatementKey.of(i, 2024, 1));
+        }
+    }
+
+    @Test
+    void loggedTokensSurviveRestartAndCheckpoint(@TempDir final Path directory) throws IOException {
+        String live;
+        String revoked;
+        String afterCheckpoint;
+        List<String> batch;
+        String snapshotExport;
+        String loggedExport;
+        try (InMemoryDownloadTokenStore logged = new InMemoryDownloadTokenStore(directory, false, 2)) {
+            live = logged.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+            revoked = logged.generateToken(StatementKey.of(2, 2024, 1), Duration.ofMinutes(5));
+            logged.generateToken(StatementKey.of(3, 2024, 1), Duration.ZERO);
+            snapshotExport = logged.generateExportToken(new StatementRange(6, 202201, 202312), Duration.ofMinutes(5));
+            logged.checkpoint();
+            loggedExport = logged.generateExportToken(new StatementRange(7, 202401, 202402), Duration.ofMinutes(5));
+            logged.forceExpireToken(revoked);
+            afterCheckpoint = logged.generateToken(StatementKey.of(4, 2024, 2), Duration.ofMinutes(5));
+            batch = logged.generateTokens(List.of(StatementKey.of(5, 2024, 1), StatementKey.of(5, 2024, 2)),
+                    Duration.ofMinutes(5));
+            logged.forceExpireToken(batch.get(0));
+        }
+
+        try (InMemoryDownloadTokenStore restarted = new InMemoryDownloadTokenStore(directory, false, 2)) {
+            assertThat(restarted.liveTokenCount()).isEqualTo(5);
+            assertThat(restarted.validateToken(live)).isEqualTo(StatementKey.of(1, 2024, 1));
+            assertThat(restarted.validateToken(revoked)).isNull();
+            assertThat(restarted.validateToken(afterCheckpoint)).isEqualTo(StatementKey.of(4, 2024, 2));
+            assertThat(restarted.validateToken(batch.get(0))).isNull();
+            assertThat(restarted.validateToken(batch.get(1))).isEqualTo(StatementKey.of(5, 2024, 2));
+            assertThat(restarted.validateExportToken(snapshotExport)).isEqualTo(new StatementRange(6, 202201, 202312));
+            assertThat(restarted.validateExportToken(loggedExport)).isEqualTo(new StatementRange(7, 202401, 202402));
+            assertThat(restarted.validateToken(loggedExport)).isNull();
+        }
+    }
+
+    @Test
+    void tableAgreesWithHashMapUnderRandomInsertsAndRemovals() {
+        TokenTable table = new TokenTable();
+        Map<List<Long>, StatementKey> reference = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<long[]> keys = new ArrayList<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            if (keys.isEmpty() || random.nextInt(3) > 0) {
+                // Few distinct high bits and a fixed stripe force long probe chains and wrap-around
+                long[] key = {random.nextLong(8) + 1, random.nextLong(1 << 10)};
+                StatementKey statement = new StatementKey(i, 200001 + i % 12);
+                table.put(key[0], key[1], statement, Long.MAX_VALUE);
+                reference.put(List.of(key[0], key[1]), statement);
+                keys.add(key);
+            } else {
+                long[] key = keys.remove(random.nextInt(keys.size()));
+                table.expire(key[0], key[1], 0);
+                table.validate(key[0], key[1], 1);
+                reference.remove(List.of(key[0], key[1]));
+            }
+        }
+
+        assertThat(table.size()).isEqualTo(reference.size());
+        reference.forEach((key, statement) ->
+                assertThat(table.validate(key.get(0), key.get(1), 1)).isEqualTo(statement));
+    }
+}
@@ -0,0 +1,101 @@
+package za.co.statements.token;
+
+import org.junit.jupiter.api.Test;
+import za.co.statements.key.StatementKey;
+import za.co.statements.key.StatementRange;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignedDownloadTokenStoreTest {
+
+    private static final byte[] KEY = new byte[32];
+
+    static {
+        Arrays.fill(KEY, (byte) 7);
+    }
+
+    private final SignedDownloadTokenStore store = new SignedDownloadTokenStore(KEY);
+
+    @Test
+    void tokenValidatesOnAnyInstanceWithTheSameKey() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+
+        assertThat(store.validateToken(token)).isEqualTo(StatementKey.of(1, 2024, 1));
+        assertThat(new SignedDownloadTokenStore(KEY).validateToken(token)).isEqualTo(StatementKey.of(1, 2024, 1));
+        assertThat(store.liveTokenCount()).isZero();
+
+        byte[] otherKey = KEY.clone();
+        otherKey[0] = 8;
+        assertThat(new SignedDownloadTokenStore(otherKey).validateToken(token)).isNull();
+    }
+
+    @Test
+    void rejectsTamperedMalformedAndExpiredTokens() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+        String forged = store.generateToken(StatementKey.of(2, 2024, 1), Duration.ofMinutes(5));
+        String signature = token.substring(token.indexOf('.'));
+
+        assertThat(store.validateToken(forged.substring(0, forged.indexOf('.')) + signature)).isNull();
+        assertThat(store.validateToken(null)).isNull();
+        assertThat(store.validateToken("not-a-token")).isNull();
+        assertThat(store.validateToken("!!!.???")).isNull();
+        assertThat(store.validateToken(store.generateToken(StatementKey.of(1, 2024, 1), Duration.ZERO))).isNull();
+    }
+
+    @Test
+    void exportTokenGrantsItsRangeButNoSingleStatement() {
+        StatementRange range = new StatementRange(1, 202201, 202412);
+        String export = store.generateExportToken(range, Duration.ofMinutes(5));
+        String single = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+
+        assertThat(store.validateExportToken(export)).isEqualTo(range);
+        assertThat(store.validateToken(export)).isNull();
+        assertThat(store.validateExportToken(single)).isEqualTo(new StatementRange(1, 202401, 202401));
+
+        store.forceExpireToken(export);
+        assertThat(store.validateExportToken(export)).isNull();
+    }
+
+    @Test
+    void forcedExpiryRevokesUntilTheTokenWouldHaveExpired() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+
+        store.forceExpireToken(token);
+        assertThat(store.validateToken(token)).isNull();
+        assertThat(store.liveTokenCount()).isEqualTo(1);
+
+        store.purgeExpired();
+        assertThat(store.liveTokenCount()).isEqualTo(1);
+
+        String shortLived = store.generateToken(StatementKey.of(1, 2024, 2), Duration.ZERO);
+        store.forceExpireToken(shortLived);
+        store.purgeExpired();
+        assertThat(store.liveTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void revocationCoversEverySpellingOfTheSignature() {
+        String token = store.generateToken(StatementKey.of(1, 2024, 1), Duration.ofMinutes(5));
+        store.forceExpireToken(token);
+
+        // The last of the 22 signature characters carries 4 bits that decoding drops
+        char last = token.charAt(token.length() - 1);
+        String base = token.substring(0, token.length() - 1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        int sameBits = alphabet.indexOf(last) & ~0x0F;
+        for (int spare = 0; spare < 16; spare++) {
+            assertThat(store.validateToken(base + alphabet.charAt(sameBits | spare))).isNull();
+        }
+        assertThat(store.liveTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsShortSigningKeys() {
+        assertThatThrownBy(() -> new SignedDownloadTokenStore(new byte[16]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}